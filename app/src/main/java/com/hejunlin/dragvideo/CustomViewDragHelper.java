@@ -19,17 +19,15 @@ package com.hejunlin.dragvideo;
 
 import android.content.Context;
 import android.support.v4.view.MotionEventCompat;
-import android.support.v4.view.VelocityTrackerCompat;
 import android.support.v4.view.ViewCompat;
-import android.support.v4.widget.ScrollerCompat;
+import android.view.Choreographer;
 import android.view.MotionEvent;
-import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.view.animation.Interpolator;
+import android.view.animation.AnimationUtils;
 
-import java.util.Arrays;
+import java.util.IdentityHashMap;
 
 
 public class CustomViewDragHelper {
@@ -102,6 +100,8 @@ public class CustomViewDragHelper {
     private static final int BASE_SETTLE_DURATION = 256; // ms
     private static final int MAX_SETTLE_DURATION = 600; // ms
 
+    private static final int MAX_PREDICTION_DISTANCE = 24; // dp
+
     // Current drag state; idle, dragging or settling
     private int mDragState;
 
@@ -110,29 +110,46 @@ public class CustomViewDragHelper {
 
     // Last known position/pointer tracking
     private int mActivePointerId = INVALID_POINTER;
-    private float[] mInitialMotionX;
-    private float[] mInitialMotionY;
-    private float[] mLastMotionX;
-    private float[] mLastMotionY;
-    private int[] mInitialEdgesTouched;
-    private int[] mEdgeDragsInProgress;
-    private int[] mEdgeDragsLocked;
-    private int mPointersDown;
-
-    private VelocityTracker mVelocityTracker;
+    private final PointerSlots mPointers = new PointerSlots();
+
+    private VelocityEstimator mVelocityEstimator = new VelocityEstimator.LeastSquares();
     private float mMaxVelocity;
     private float mMinVelocity;
 
     private int mEdgeSize;
     private int mTrackingEdges;
 
-    private ScrollerCompat mScroller;
+    private SettleEngine mSettleEngine = new SettleEngine();
+    private int mSettleDuration;
+
+    // Views settling on their own next to the captured view, see settleViewTo()
+    private final SettlePool<View> mSettlingViews = new SettlePool<>();
+
+    // Spatial index for findTopChildUnder(), see setHitTestIndexEnabled()
+    private boolean mHitTestIndexEnabled;
+    private boolean mHitTestIndexDirty = true;
+    private final HitGrid mHitGrid = new HitGrid();
+    private View[] mHitTestViews = new View[0];
+    private final IdentityHashMap<View, Integer> mHitTestRanks = new IdentityHashMap<>();
 
     private final Callback mCallback;
 
     private View mCapturedView;
     private boolean mReleaseInProgress;
 
+    // Input coalescing; moves of the active pointer are applied once per frame
+    private boolean mInputCoalescingEnabled;
+    private boolean mHasPendingDrag;
+    private float mPendingDragX;
+    private float mPendingDragY;
+    private boolean mDragFramePosted;
+
+    // Touch prediction; how far ahead of the pointer the captured view was last placed
+    private final TouchPredictor mTouchPredictor = new TouchPredictor();
+    private int mPredictionHorizon;
+    private float mAppliedPredictionX;
+    private float mAppliedPredictionY;
+
     private final ViewGroup mParentView;
 
     /**
@@ -197,6 +214,15 @@ public class CustomViewDragHelper {
          */
         public void onViewReleased(View releasedChild, float xvel, float yvel) {}
 
+        /**
+         * Called when a view settling on its own, see {@link #settleViewTo(View, int, int)},
+         * comes to rest. This is called from {@link #continueSettling(boolean)}, so usually
+         * during {@link View#computeScroll()}.
+         *
+         * @param settledChild The child view that stopped moving
+         */
+        public void onViewSettled(View settledChild) {}
+
         /**
          * Called when one of the subscribed edges in the parent view has been touched
          * by the user while no child view is currently captured.
@@ -317,22 +343,19 @@ public class CustomViewDragHelper {
         }
     }
 
-    /**
-     * Interpolator defining the animation curve for mScroller
-     */
-    private static final Interpolator sInterpolator = new Interpolator() {
-        public float getInterpolation(float t) {
-            t -= 1.0f;
-            return t * t * t * t * t + 1.0f;
-        }
-    };
-
     private final Runnable mSetIdleRunnable = new Runnable() {
         public void run() {
             setDragState(STATE_IDLE);
         }
     };
 
+    private final Choreographer.FrameCallback mDragFrameCallback = new Choreographer.FrameCallback() {
+        public void doFrame(long frameTimeNanos) {
+            mDragFramePosted = false;
+            flushPendingDrag();
+        }
+    };
+
     /**
      * Factory method to create a new ViewDragHelper.
      *
@@ -381,11 +404,11 @@ public class CustomViewDragHelper {
         final ViewConfiguration vc = ViewConfiguration.get(context);
         final float density = context.getResources().getDisplayMetrics().density;
         mEdgeSize = (int) (EDGE_SIZE * density + 0.5f);
+        mTouchPredictor.setMaxDistance(MAX_PREDICTION_DISTANCE * density);
 
         mTouchSlop = vc.getScaledTouchSlop();
         mMaxVelocity = vc.getScaledMaximumFlingVelocity();
         mMinVelocity = vc.getScaledMinimumFlingVelocity();
-        mScroller = ScrollerCompat.create(context, sInterpolator);
     }
 
     /**
@@ -409,6 +432,117 @@ public class CustomViewDragHelper {
         return mMinVelocity;
     }
 
+    /**
+     * Set the strategy used to estimate pointer velocities for releases and settles.
+     * The default is {@link VelocityEstimator.LeastSquares}.
+     *
+     * @param estimator Velocity estimation strategy, may not be null
+     */
+    public void setVelocityEstimator(VelocityEstimator estimator) {
+        if (estimator == null) {
+            throw new IllegalArgumentException("VelocityEstimator may not be null");
+        }
+        mVelocityEstimator = estimator;
+    }
+
+    /**
+     * Enable or disable input coalescing. When enabled, moves of the captured view's pointer
+     * are collected between frames and the view is dragged once per Choreographer frame to
+     * the newest position, instead of once per {@link MotionEvent#ACTION_MOVE}. Every sample,
+     * including historical ones, still reaches the velocity estimator.
+     *
+     * <p>The frame callback is posted while the input of the frame is being handled, so the
+     * position update happens in the animation phase of the same frame. Pending movement is
+     * applied before any other action is processed, so releases always see the final
+     * position.</p>
+     *
+     * <p>Must be called on the UI thread.</p>
+     *
+     * @param enabled true to coalesce moves to one drag per frame
+     */
+    public void setInputCoalescingEnabled(boolean enabled) {
+        if (!enabled) {
+            flushPendingDrag();
+        }
+        mInputCoalescingEnabled = enabled;
+    }
+
+    /**
+     * @return true if moves are coalesced to one drag per frame
+     * @see #setInputCoalescingEnabled(boolean)
+     */
+    public boolean isInputCoalescingEnabled() {
+        return mInputCoalescingEnabled;
+    }
+
+    /**
+     * Enable or disable touch prediction. When enabled, the captured view is dragged to
+     * where the active pointer is expected to be when the frame is displayed rather than
+     * where it was last reported, using the velocity and acceleration of its recent
+     * samples. Predictions are bounded to {@value #MAX_PREDICTION_DISTANCE}dp and are
+     * dropped along an axis whenever the predicted position would be clamped by
+     * {@link Callback#clampViewPositionHorizontal(View, int, int)} or
+     * {@link Callback#clampViewPositionVertical(View, int, int)}, so the view does not
+     * overshoot into a bound.
+     *
+     * @param horizonMillis Expected time from the current frame to its display,
+     *                      0 to disable prediction
+     */
+    public void setTouchPredictionHorizon(int horizonMillis) {
+        mPredictionHorizon = Math.max(0, horizonMillis);
+        mTouchPredictor.clear();
+    }
+
+    /**
+     * Enable or disable the spatial index used by {@link #findTopChildUnder(int, int)}.
+     * With the index a lookup only tests the children overlapping one cell of a uniform
+     * grid over the parent, instead of every child.
+     *
+     * <p>The helper keeps the index up to date for every move it reports through
+     * {@link Callback#onViewPositionChanged(View, int, int, int, int)}. The parent must call
+     * {@link #updateHitTestIndex(View)} when it moves a child in any other way, and
+     * {@link #invalidateHitTestIndex()} after a layout pass or when children are added,
+     * removed or reordered. Changes in the child count and in the parent size are picked up
+     * automatically.</p>
+     *
+     * @param enabled true to index the children of the parent view
+     */
+    public void setHitTestIndexEnabled(boolean enabled) {
+        mHitTestIndexEnabled = enabled;
+        mHitTestIndexDirty = true;
+        if (!enabled) {
+            mHitTestRanks.clear();
+            mHitTestViews = new View[0];
+        }
+    }
+
+    /**
+     * Refresh the indexed bounds of a child after the parent moved it.
+     *
+     * @param child Child view of the parent that moved
+     * @see #setHitTestIndexEnabled(boolean)
+     */
+    public void updateHitTestIndex(View child) {
+        if (!mHitTestIndexEnabled || mHitTestIndexDirty) {
+            return;
+        }
+        final Integer rank = mHitTestRanks.get(child);
+        if (rank == null) {
+            mHitTestIndexDirty = true;
+            return;
+        }
+        indexChild(rank, child);
+    }
+
+    /**
+     * Rebuild the whole index on the next lookup.
+     *
+     * @see #setHitTestIndexEnabled(boolean)
+     */
+    public void invalidateHitTestIndex() {
+        mHitTestIndexDirty = true;
+    }
+
     /**
      * Retrieve the current drag state of this helper. This will return one of
      * {@link #STATE_IDLE}, {@link #STATE_DRAGGING} or {@link #STATE_SETTLING}.
@@ -418,6 +552,14 @@ public class CustomViewDragHelper {
         return mDragState;
     }
 
+    /**
+     * @return The duration in milliseconds planned for the most recent settle, or 0 if the
+     *         view was flung and the duration is decided by the fling friction.
+     */
+    public int getSettleDuration() {
+        return mSettleDuration;
+    }
+
     /**
      * Enable edge tracking for the selected edges of the parent view.
      * The callback's {@link Callback#onEdgeTouched(int, int)} and
@@ -459,8 +601,22 @@ public class CustomViewDragHelper {
                     "of the ViewDragHelper's tracked parent view (" + mParentView + ")");
         }
 
+        if (mDragState == STATE_SETTLING && childView != mCapturedView) {
+            // The view settling so far carries on by itself.
+            mSettleEngine = mSettlingViews.add(mCapturedView, mSettleEngine);
+        }
+        final int settlingIndex = mSettlingViews.indexOf(childView);
+        if (settlingIndex >= 0) {
+            // Catching a view that settles by itself takes over its engine and velocity.
+            mSettleEngine = mSettlingViews.exchange(settlingIndex, mSettleEngine);
+        } else if (mDragState == STATE_IDLE || childView != mCapturedView) {
+            // Nothing in flight. When catching a settling view the engine keeps its
+            // velocity so that a programmatic settle can carry it on.
+            mSettleEngine.setState(getViewLeft(childView), getViewTop(childView), 0, 0);
+        }
         mCapturedView = childView;
         mActivePointerId = activePointerId;
+        clearPrediction();
         mCallback.onViewCaptured(childView, activePointerId);
         setDragState(STATE_DRAGGING);
     }
@@ -492,13 +648,11 @@ public class CustomViewDragHelper {
      * {@link #processTouchEvent(MotionEvent)} receiving an ACTION_CANCEL event.
      */
     public void cancel() {
+        cancelPendingDrag();
+        clearPrediction();
         mActivePointerId = INVALID_POINTER;
         clearMotionHistory();
-
-        if (mVelocityTracker != null) {
-            mVelocityTracker.recycle();
-            mVelocityTracker = null;
-        }
+        mVelocityEstimator.clear();
     }
 
     /**
@@ -508,14 +662,27 @@ public class CustomViewDragHelper {
     public void abort() {
         cancel();
         if (mDragState == STATE_SETTLING) {
-            final int oldX = mScroller.getCurrX();
-            final int oldY = mScroller.getCurrY();
-            mScroller.abortAnimation();
-            final int newX = mScroller.getCurrX();
-            final int newY = mScroller.getCurrY();
-            mCallback.onViewPositionChanged(mCapturedView, newX, newY, newX - oldX, newY - oldY);
+            final int oldX = mSettleEngine.getCurrX();
+            final int oldY = mSettleEngine.getCurrY();
+            mSettleEngine.abortAnimation();
+            final int newX = mSettleEngine.getCurrX();
+            final int newY = mSettleEngine.getCurrY();
+            dispatchViewPositionChanged(mCapturedView, newX, newY, newX - oldX, newY - oldY);
         }
         setDragState(STATE_IDLE);
+
+        for (int i = mSettlingViews.size() - 1; i >= 0; i--) {
+            final View view = mSettlingViews.getView(i);
+            final SettleEngine engine = mSettlingViews.getEngine(i);
+            final int oldX = engine.getCurrX();
+            final int oldY = engine.getCurrY();
+            engine.abortAnimation();
+            final int newX = engine.getCurrX();
+            final int newY = engine.getCurrY();
+            mSettlingViews.remove(i);
+            dispatchViewPositionChanged(view, newX, newY, newX - oldX, newY - oldY);
+            mCallback.onViewSettled(view);
+        }
     }
 
     /**
@@ -533,6 +700,12 @@ public class CustomViewDragHelper {
      * @return true if animation should continue through {@link #continueSettling(boolean)} calls
      */
     public boolean smoothSlideViewTo(View child, int finalLeft, int finalTop) {
+        if ((mDragState != STATE_IDLE && child != mCapturedView)
+                || mSettlingViews.indexOf(child) >= 0) {
+            // Another view owns the drag state; this one settles by itself.
+            return settleViewTo(child, finalLeft, finalTop);
+        }
+
         mCapturedView = child;
         mActivePointerId = INVALID_POINTER;
 
@@ -546,6 +719,61 @@ public class CustomViewDragHelper {
         return continueSliding;
     }
 
+    /**
+     * Animate a view to the given (left, top) position independently of the captured view.
+     * Any number of views can settle this way at the same time; all of them are advanced by
+     * {@link #continueSettling(boolean)}, at a cost proportional to the number of moving
+     * views, and {@link Callback#onViewSettled(View)} reports each one coming to rest.
+     * The drag state is not affected.
+     *
+     * <p>Calling this again for a view that is still settling retargets it without losing
+     * its velocity. If the view is captured this is equivalent to
+     * {@link #smoothSlideViewTo(View, int, int)} while it settles, and does nothing while
+     * it is being dragged. If the view is captured later on, the capture takes over its
+     * motion. Likewise, capturing another view while the captured view is settling lets
+     * it finish its settle this way.</p>
+     *
+     * @param child Child view to animate
+     * @param finalLeft Final left position of child
+     * @param finalTop Final top position of child
+     * @return true if the view is moving and {@link #continueSettling(boolean)} should be
+     *         called on the following frames
+     */
+    public boolean settleViewTo(View child, int finalLeft, int finalTop) {
+        if (child == mCapturedView && mDragState != STATE_IDLE) {
+            return mDragState == STATE_SETTLING && smoothSlideViewTo(child, finalLeft, finalTop);
+        }
+
+        final int startLeft = getViewLeft(child);
+        final int startTop = getViewTop(child);
+        final int dx = finalLeft - startLeft;
+        final int dy = finalTop - startTop;
+        final int index = mSettlingViews.indexOf(child);
+        final SettleEngine engine;
+        if (index >= 0) {
+            engine = mSettlingViews.getEngine(index);
+        } else if (dx == 0 && dy == 0) {
+            return false;
+        } else {
+            engine = mSettlingViews.obtain(child);
+            engine.setState(startLeft, startTop, 0, 0);
+        }
+
+        final int duration = dx == 0 && dy == 0 ? BASE_SETTLE_DURATION
+                : computeSettleDuration(child, dx, dy, 0, 0);
+        springWithinDragRange(engine, child, finalLeft, finalTop, duration);
+        return true;
+    }
+
+    /**
+     * @param view Child view to check
+     * @return true if the view is captured and not idle, or settling on its own
+     */
+    public boolean isViewMoving(View view) {
+        return (view == mCapturedView && mDragState != STATE_IDLE)
+                || mSettlingViews.indexOf(view) >= 0;
+    }
+
     /**
      * Settle the captured view at the given (left, top) position.
      * The appropriate velocity from prior motion will be taken into account.
@@ -564,13 +792,17 @@ public class CustomViewDragHelper {
         }
 
         return forceSettleCapturedViewAt(finalLeft, finalTop,
-                (int) VelocityTrackerCompat.getXVelocity(mVelocityTracker, mActivePointerId),
-                (int) VelocityTrackerCompat.getYVelocity(mVelocityTracker, mActivePointerId));
+                (int) mVelocityEstimator.getXVelocity(mActivePointerId),
+                (int) mVelocityEstimator.getYVelocity(mActivePointerId));
     }
 
     /**
      * Settle the captured view at the given (left, top) position.
      *
+     * <p>If the view is already settling, or was caught by a pointer while settling,
+     * the motion is retargeted and keeps its current velocity instead of starting
+     * again from rest.</p>
+     *
      * @param finalLeft Target left position for the captured view
      * @param finalTop Target top position for the captured view
      * @param xvel Horizontal velocity
@@ -578,25 +810,49 @@ public class CustomViewDragHelper {
      * @return true if animation should continue through {@link #continueSettling(boolean)} calls
      */
     private boolean forceSettleCapturedViewAt(int finalLeft, int finalTop, int xvel, int yvel) {
-        final int startLeft = mCapturedView.getLeft();
-        final int startTop = mCapturedView.getTop();
+        final int startLeft = getViewLeft(mCapturedView);
+        final int startTop = getViewTop(mCapturedView);
         final int dx = finalLeft - startLeft;
         final int dy = finalTop - startTop;
 
         if (dx == 0 && dy == 0) {
             // Nothing to do. Send callbacks, be done.
-            mScroller.abortAnimation();
+            mSettleEngine.setState(startLeft, startTop, 0, 0);
             setDragState(STATE_IDLE);
             return false;
         }
 
+        if (mDragState == STATE_IDLE) {
+            mSettleEngine.setState(startLeft, startTop, xvel, yvel);
+        }
         final int duration = computeSettleDuration(mCapturedView, dx, dy, xvel, yvel);
-        mScroller.startScroll(startLeft, startTop, dx, dy, duration);
+        springWithinDragRange(mSettleEngine, mCapturedView, finalLeft, finalTop, duration);
+        mSettleDuration = duration;
 
         setDragState(STATE_SETTLING);
         return true;
     }
 
+    /**
+     * Spring a view to its target without leaving the range the callback lets it be dragged
+     * in, widened to take in the current position and the target.
+     */
+    private void springWithinDragRange(SettleEngine engine, View child, int finalLeft,
+                                       int finalTop, int duration) {
+        final int left = getViewLeft(child);
+        final int top = getViewTop(child);
+        final int minLeft = Math.min(Math.min(left, finalLeft),
+                mCallback.clampViewPositionHorizontal(child, Integer.MIN_VALUE / 2, -1));
+        final int maxLeft = Math.max(Math.max(left, finalLeft),
+                mCallback.clampViewPositionHorizontal(child, Integer.MAX_VALUE / 2, 1));
+        final int minTop = Math.min(Math.min(top, finalTop),
+                mCallback.clampViewPositionVertical(child, Integer.MIN_VALUE / 2, -1));
+        final int maxTop = Math.max(Math.max(top, finalTop),
+                mCallback.clampViewPositionVertical(child, Integer.MAX_VALUE / 2, 1));
+        engine.springTo(finalLeft, finalTop, minLeft, maxLeft, minTop, maxTop, duration,
+                AnimationUtils.currentAnimationTimeMillis());
+    }
+
     private int computeSettleDuration(View child, int dx, int dy, int xvel, int yvel) {
         xvel = clampMag(xvel, (int) mMinVelocity, (int) mMaxVelocity);
         yvel = clampMag(yvel, (int) mMinVelocity, (int) mMaxVelocity);
@@ -696,10 +952,11 @@ public class CustomViewDragHelper {
                     "Callback#onViewReleased");
         }
 
-        mScroller.fling(mCapturedView.getLeft(), mCapturedView.getTop(),
-                (int) VelocityTrackerCompat.getXVelocity(mVelocityTracker, mActivePointerId),
-                (int) VelocityTrackerCompat.getYVelocity(mVelocityTracker, mActivePointerId),
-                minLeft, maxLeft, minTop, maxTop);
+        mSettleEngine.setPosition(getViewLeft(mCapturedView), getViewTop(mCapturedView));
+        mSettleEngine.fling(mVelocityEstimator.getXVelocity(mActivePointerId),
+                mVelocityEstimator.getYVelocity(mActivePointerId),
+                minLeft, maxLeft, minTop, maxTop, AnimationUtils.currentAnimationTimeMillis());
+        mSettleDuration = 0;
 
         setDragState(STATE_SETTLING);
     }
@@ -713,31 +970,26 @@ public class CustomViewDragHelper {
      *                       Set this to true if you are calling this method from
      *                       {@link View#computeScroll()} or similar methods
      *                       invoked as part of layout or drawing.
-     * @return true if settle is still in progress
+     * @return true if settle is still in progress, for the captured view or for any view
+     *         settling on its own
      */
     public boolean continueSettling(boolean deferCallbacks) {
+        final boolean othersSettling = continueSettlingViews();
+
         if (mDragState == STATE_SETTLING) {
-            boolean keepGoing = mScroller.computeScrollOffset();
-            final int x = mScroller.getCurrX();
-            final int y = mScroller.getCurrY();
-            final int dx = x - mCapturedView.getLeft();
-            final int dy = y - mCapturedView.getTop();
-
-//            if (dx != 0) {
-//                mCapturedView.offsetLeftAndRight(dx);
-//            }
-//            if (dy != 0) {
-//                mCapturedView.offsetTopAndBottom(dy);
-//            }
+            boolean keepGoing = mSettleEngine.computeScrollOffset(
+                    AnimationUtils.currentAnimationTimeMillis());
+            final int x = mSettleEngine.getCurrX();
+            final int y = mSettleEngine.getCurrY();
+            final int dx = x - getViewLeft(mCapturedView);
+            final int dy = y - getViewTop(mCapturedView);
 
             if (dx != 0 || dy != 0) {
-                mCallback.onViewPositionChanged(mCapturedView, x, y, dx, dy);
+                dispatchViewPositionChanged(mCapturedView, x, y, dx, dy);
             }
 
-            if (keepGoing && x == mScroller.getFinalX() && y == mScroller.getFinalY()) {
-                // Close enough. The interpolator/scroller might think we're still moving
-                // but the user sure doesn't.
-                mScroller.abortAnimation();
+            if (keepGoing && mSettleEngine.isFinished()) {
+                // The engine came to rest during this step.
                 keepGoing = false;
             }
 
@@ -750,7 +1002,37 @@ public class CustomViewDragHelper {
             }
         }
 
-        return mDragState == STATE_SETTLING;
+        return mDragState == STATE_SETTLING || othersSettling;
+    }
+
+    /**
+     * Advance every view settling on its own by one frame.
+     *
+     * @return true if any of them is still moving
+     */
+    private boolean continueSettlingViews() {
+        if (mSettlingViews.size() == 0) {
+            return false;
+        }
+        final long now = AnimationUtils.currentAnimationTimeMillis();
+        // Backwards, so removing an entry only moves one that was already advanced.
+        for (int i = mSettlingViews.size() - 1; i >= 0; i--) {
+            final View view = mSettlingViews.getView(i);
+            final SettleEngine engine = mSettlingViews.getEngine(i);
+            engine.computeScrollOffset(now);
+            final int x = engine.getCurrX();
+            final int y = engine.getCurrY();
+            final int dx = x - getViewLeft(view);
+            final int dy = y - getViewTop(view);
+            if (dx != 0 || dy != 0) {
+                dispatchViewPositionChanged(view, x, y, dx, dy);
+            }
+            if (engine.isFinished()) {
+                mSettlingViews.remove(i);
+                mCallback.onViewSettled(view);
+            }
+        }
+        return mSettlingViews.size() > 0;
     }
 
     /**
@@ -771,79 +1053,72 @@ public class CustomViewDragHelper {
     }
 
     private void clearMotionHistory() {
-        if (mInitialMotionX == null) {
-            return;
-        }
-        Arrays.fill(mInitialMotionX, 0);
-        Arrays.fill(mInitialMotionY, 0);
-        Arrays.fill(mLastMotionX, 0);
-        Arrays.fill(mLastMotionY, 0);
-        Arrays.fill(mInitialEdgesTouched, 0);
-        Arrays.fill(mEdgeDragsInProgress, 0);
-        Arrays.fill(mEdgeDragsLocked, 0);
-        mPointersDown = 0;
+        mPointers.clear();
     }
 
     private void clearMotionHistory(int pointerId) {
-        if (mInitialMotionX == null) {
-            return;
-        }
-        mInitialMotionX[pointerId] = 0;
-        mInitialMotionY[pointerId] = 0;
-        mLastMotionX[pointerId] = 0;
-        mLastMotionY[pointerId] = 0;
-        mInitialEdgesTouched[pointerId] = 0;
-        mEdgeDragsInProgress[pointerId] = 0;
-        mEdgeDragsLocked[pointerId] = 0;
-        mPointersDown &= ~(1 << pointerId);
-    }
-
-    private void ensureMotionHistorySizeForId(int pointerId) {
-        if (mInitialMotionX == null || mInitialMotionX.length <= pointerId) {
-            float[] imx = new float[pointerId + 1];
-            float[] imy = new float[pointerId + 1];
-            float[] lmx = new float[pointerId + 1];
-            float[] lmy = new float[pointerId + 1];
-            int[] iit = new int[pointerId + 1];
-            int[] edip = new int[pointerId + 1];
-            int[] edl = new int[pointerId + 1];
-
-            if (mInitialMotionX != null) {
-                System.arraycopy(mInitialMotionX, 0, imx, 0, mInitialMotionX.length);
-                System.arraycopy(mInitialMotionY, 0, imy, 0, mInitialMotionY.length);
-                System.arraycopy(mLastMotionX, 0, lmx, 0, mLastMotionX.length);
-                System.arraycopy(mLastMotionY, 0, lmy, 0, mLastMotionY.length);
-                System.arraycopy(mInitialEdgesTouched, 0, iit, 0, mInitialEdgesTouched.length);
-                System.arraycopy(mEdgeDragsInProgress, 0, edip, 0, mEdgeDragsInProgress.length);
-                System.arraycopy(mEdgeDragsLocked, 0, edl, 0, mEdgeDragsLocked.length);
-            }
-
-            mInitialMotionX = imx;
-            mInitialMotionY = imy;
-            mLastMotionX = lmx;
-            mLastMotionY = lmy;
-            mInitialEdgesTouched = iit;
-            mEdgeDragsInProgress = edip;
-            mEdgeDragsLocked = edl;
-        }
+        mPointers.clear(pointerId);
     }
 
     private void saveInitialMotion(float x, float y, int pointerId) {
-        ensureMotionHistorySizeForId(pointerId);
-        mInitialMotionX[pointerId] = mLastMotionX[pointerId] = x;
-        mInitialMotionY[pointerId] = mLastMotionY[pointerId] = y;
-        mInitialEdgesTouched[pointerId] = getEdgesTouched((int) x, (int) y);
-        mPointersDown |= 1 << pointerId;
+        mPointers.saveInitialMotion(pointerId, x, y, getEdgesTouched((int) x, (int) y));
     }
 
     private void saveLastMotion(MotionEvent ev) {
+        saveLastMotion(ev, INVALID_POINTER);
+    }
+
+    private void saveLastMotion(MotionEvent ev, int skipPointerId) {
         final int pointerCount = MotionEventCompat.getPointerCount(ev);
         for (int i = 0; i < pointerCount; i++) {
             final int pointerId = MotionEventCompat.getPointerId(ev, i);
+            if (pointerId == skipPointerId) {
+                continue;
+            }
             final float x = MotionEventCompat.getX(ev, i);
             final float y = MotionEventCompat.getY(ev, i);
-            mLastMotionX[pointerId] = x;
-            mLastMotionY[pointerId] = y;
+            mPointers.saveLastMotion(pointerId, x, y);
+        }
+    }
+
+    /**
+     * Feed the samples of a MotionEvent, including the historical samples batched into
+     * it, to the velocity estimator. Up events carry no new movement and are skipped.
+     */
+    private void addMovement(MotionEvent ev, int action, int actionIndex) {
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+                mVelocityEstimator.clear();
+                break;
+            case MotionEventCompat.ACTION_POINTER_DOWN:
+                mVelocityEstimator.clear(MotionEventCompat.getPointerId(ev, actionIndex));
+                break;
+            case MotionEvent.ACTION_MOVE:
+                break;
+            default:
+                return;
+        }
+
+        final int pointerCount = MotionEventCompat.getPointerCount(ev);
+        final int historySize = ev.getHistorySize();
+        for (int h = 0; h < historySize; h++) {
+            final long time = ev.getHistoricalEventTime(h);
+            for (int i = 0; i < pointerCount; i++) {
+                addMovement(MotionEventCompat.getPointerId(ev, i), time,
+                        ev.getHistoricalX(i, h), ev.getHistoricalY(i, h));
+            }
+        }
+        final long time = ev.getEventTime();
+        for (int i = 0; i < pointerCount; i++) {
+            addMovement(MotionEventCompat.getPointerId(ev, i), time,
+                    MotionEventCompat.getX(ev, i), MotionEventCompat.getY(ev, i));
+        }
+    }
+
+    private void addMovement(int pointerId, long time, float x, float y) {
+        mVelocityEstimator.addMovement(pointerId, time, x, y);
+        if (mPredictionHorizon > 0 && pointerId == mActivePointerId) {
+            mTouchPredictor.addSample(time, x, y);
         }
     }
 
@@ -861,7 +1136,7 @@ public class CustomViewDragHelper {
      * @return true if the pointer with the given ID is still down
      */
     public boolean isPointerDown(int pointerId) {
-        return (mPointersDown & 1 << pointerId) != 0;
+        return mPointers.isPointerDown(pointerId);
     }
 
     void setDragState(int state) {
@@ -950,10 +1225,7 @@ public class CustomViewDragHelper {
             cancel();
         }
 
-        if (mVelocityTracker == null) {
-            mVelocityTracker = VelocityTracker.obtain();
-        }
-        mVelocityTracker.addMovement(ev);
+        addMovement(ev, action, actionIndex);
 
         switch (action) {
             case MotionEvent.ACTION_DOWN: {
@@ -969,7 +1241,7 @@ public class CustomViewDragHelper {
                     tryCaptureViewForDrag(toCapture, pointerId);
                 }
 
-                final int edgesTouched = mInitialEdgesTouched[pointerId];
+                final int edgesTouched = mPointers.getInitialEdgesTouched(pointerId);
                 if ((edgesTouched & mTrackingEdges) != 0) {
                     mCallback.onEdgeTouched(edgesTouched & mTrackingEdges, pointerId);
                 }
@@ -985,7 +1257,7 @@ public class CustomViewDragHelper {
 
                 // A ViewDragHelper can only manipulate one view at a time.
                 if (mDragState == STATE_IDLE) {
-                    final int edgesTouched = mInitialEdgesTouched[pointerId];
+                    final int edgesTouched = mPointers.getInitialEdgesTouched(pointerId);
                     if ((edgesTouched & mTrackingEdges) != 0) {
                         mCallback.onEdgeTouched(edgesTouched & mTrackingEdges, pointerId);
                     }
@@ -1000,7 +1272,7 @@ public class CustomViewDragHelper {
             }
 
             case MotionEvent.ACTION_MOVE: {
-                if (mInitialMotionX == null || mInitialMotionY == null) break;
+                if (mPointers.getPointersDown() == 0) break;
 
                 // First to cross a touch slop over a draggable view wins. Also report edge drags.
                 final int pointerCount = MotionEventCompat.getPointerCount(ev);
@@ -1008,8 +1280,8 @@ public class CustomViewDragHelper {
                     final int pointerId = MotionEventCompat.getPointerId(ev, i);
                     final float x = MotionEventCompat.getX(ev, i);
                     final float y = MotionEventCompat.getY(ev, i);
-                    final float dx = x - mInitialMotionX[pointerId];
-                    final float dy = y - mInitialMotionY[pointerId];
+                    final float dx = x - mPointers.getInitialMotionX(pointerId);
+                    final float dy = y - mPointers.getInitialMotionY(pointerId);
 
                     final View toCapture = findTopChildUnder((int) x, (int) y);
                     final boolean pastSlop = toCapture != null && checkTouchSlop(toCapture, dx, dy);
@@ -1019,11 +1291,11 @@ public class CustomViewDragHelper {
                         // if you can move at all along an axis, then see if it
                         // would clamp to the same value. If you can't move at
                         // all in every dimension with a nonzero range, bail.
-                        final int oldLeft = toCapture.getLeft();
+                        final int oldLeft = getViewLeft(toCapture);
                         final int targetLeft = oldLeft + (int) dx;
                         final int newLeft = mCallback.clampViewPositionHorizontal(toCapture,
                                 targetLeft, (int) dx);
-                        final int oldTop = toCapture.getTop();
+                        final int oldTop = getViewTop(toCapture);
                         final int targetTop = oldTop + (int) dy;
                         final int newTop = mCallback.clampViewPositionVertical(toCapture, targetTop,
                                 (int) dy);
@@ -1082,10 +1354,12 @@ public class CustomViewDragHelper {
             cancel();
         }
 
-        if (mVelocityTracker == null) {
-            mVelocityTracker = VelocityTracker.obtain();
+        if (action != MotionEvent.ACTION_MOVE) {
+            // Anything but a move may change the captured view or release it
+            flushPendingDrag();
         }
-        mVelocityTracker.addMovement(ev);
+
+        addMovement(ev, action, actionIndex);
 
         switch (action) {
             case MotionEvent.ACTION_DOWN: {
@@ -1101,7 +1375,7 @@ public class CustomViewDragHelper {
                 // Start immediately if possible.
                 tryCaptureViewForDrag(toCapture, pointerId);
 
-                final int edgesTouched = mInitialEdgesTouched[pointerId];
+                final int edgesTouched = mPointers.getInitialEdgesTouched(pointerId);
                 if ((edgesTouched & mTrackingEdges) != 0) {
                     mCallback.onEdgeTouched(edgesTouched & mTrackingEdges, pointerId);
                 }
@@ -1122,7 +1396,7 @@ public class CustomViewDragHelper {
                     final View toCapture = findTopChildUnder((int) x, (int) y);
                     tryCaptureViewForDrag(toCapture, pointerId);
 
-                    final int edgesTouched = mInitialEdgesTouched[pointerId];
+                    final int edgesTouched = mPointers.getInitialEdgesTouched(pointerId);
                     if ((edgesTouched & mTrackingEdges) != 0) {
                         mCallback.onEdgeTouched(edgesTouched & mTrackingEdges, pointerId);
                     }
@@ -1137,16 +1411,24 @@ public class CustomViewDragHelper {
             }
 
             case MotionEvent.ACTION_MOVE: {
-                if (mDragState == STATE_DRAGGING) {
+                if (mDragState == STATE_DRAGGING && mInputCoalescingEnabled) {
                     final int index = MotionEventCompat.findPointerIndex(ev, mActivePointerId);
-                    final float x = MotionEventCompat.getX(ev, index);
-                    final float y = MotionEventCompat.getY(ev, index);
-                    final int idx = (int) (x - mLastMotionX[mActivePointerId]);
-                    final int idy = (int) (y - mLastMotionY[mActivePointerId]);
+                    mPendingDragX = MotionEventCompat.getX(ev, index);
+                    mPendingDragY = MotionEventCompat.getY(ev, index);
+                    mHasPendingDrag = true;
+                    if (!mDragFramePosted) {
+                        mDragFramePosted = true;
+                        Choreographer.getInstance().postFrameCallback(mDragFrameCallback);
+                    }
 
-                    dragTo(mCapturedView.getLeft() + idx, mCapturedView.getTop() + idy, idx, idy);
+                    // The active pointer's last motion is the position last applied.
+                    saveLastMotion(ev, mActivePointerId);
+                } else if (mDragState == STATE_DRAGGING) {
+                    final int index = MotionEventCompat.findPointerIndex(ev, mActivePointerId);
+                    dragActivePointerTo(MotionEventCompat.getX(ev, index),
+                            MotionEventCompat.getY(ev, index));
 
-                    saveLastMotion(ev);
+                    saveLastMotion(ev, mActivePointerId);
                 } else {
                     // Check to see if any pointer is now over a draggable view.
                     final int pointerCount = MotionEventCompat.getPointerCount(ev);
@@ -1154,8 +1436,8 @@ public class CustomViewDragHelper {
                         final int pointerId = MotionEventCompat.getPointerId(ev, i);
                         final float x = MotionEventCompat.getX(ev, i);
                         final float y = MotionEventCompat.getY(ev, i);
-                        final float dx = x - mInitialMotionX[pointerId];
-                        final float dy = y - mInitialMotionY[pointerId];
+                        final float dx = x - mPointers.getInitialMotionX(pointerId);
+                        final float dy = y - mPointers.getInitialMotionY(pointerId);
 
                         reportNewEdgeDrags(dx, dy, pointerId);
                         if (mDragState == STATE_DRAGGING) {
@@ -1239,7 +1521,7 @@ public class CustomViewDragHelper {
         }
 
         if (dragsStarted != 0) {
-            mEdgeDragsInProgress[pointerId] |= dragsStarted;
+            mPointers.addEdgeDragsInProgress(pointerId, dragsStarted);
             mCallback.onEdgeDragStarted(dragsStarted, pointerId);
         }
     }
@@ -1248,17 +1530,17 @@ public class CustomViewDragHelper {
         final float absDelta = Math.abs(delta);
         final float absODelta = Math.abs(odelta);
 
-        if ((mInitialEdgesTouched[pointerId] & edge) != edge  || (mTrackingEdges & edge) == 0 ||
-                (mEdgeDragsLocked[pointerId] & edge) == edge ||
-                (mEdgeDragsInProgress[pointerId] & edge) == edge ||
+        if ((mPointers.getInitialEdgesTouched(pointerId) & edge) != edge  || (mTrackingEdges & edge) == 0 ||
+                (mPointers.getEdgeDragsLocked(pointerId) & edge) == edge ||
+                (mPointers.getEdgeDragsInProgress(pointerId) & edge) == edge ||
                 (absDelta <= mTouchSlop && absODelta <= mTouchSlop)) {
             return false;
         }
         if (absDelta < absODelta * 0.5f && mCallback.onEdgeLock(edge)) {
-            mEdgeDragsLocked[pointerId] |= edge;
+            mPointers.addEdgeDragsLocked(pointerId, edge);
             return false;
         }
-        return (mEdgeDragsInProgress[pointerId] & edge) == 0 && absDelta > mTouchSlop;
+        return (mPointers.getEdgeDragsInProgress(pointerId) & edge) == 0 && absDelta > mTouchSlop;
     }
 
     /**
@@ -1303,8 +1585,7 @@ public class CustomViewDragHelper {
      * @return true if the slop threshold has been crossed, false otherwise
      */
     public boolean checkTouchSlop(int directions) {
-        final int count = mInitialMotionX.length;
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; i < PointerSlots.MAX_POINTERS; i++) {
             if (checkTouchSlop(directions, i)) {
                 return true;
             }
@@ -1335,8 +1616,8 @@ public class CustomViewDragHelper {
         final boolean checkHorizontal = (directions & DIRECTION_HORIZONTAL) == DIRECTION_HORIZONTAL;
         final boolean checkVertical = (directions & DIRECTION_VERTICAL) == DIRECTION_VERTICAL;
 
-        final float dx = mLastMotionX[pointerId] - mInitialMotionX[pointerId];
-        final float dy = mLastMotionY[pointerId] - mInitialMotionY[pointerId];
+        final float dx = mPointers.getLastMotionX(pointerId) - mPointers.getInitialMotionX(pointerId);
+        final float dy = mPointers.getLastMotionY(pointerId) - mPointers.getInitialMotionY(pointerId);
 
         if (checkHorizontal && checkVertical) {
             return dx * dx + dy * dy > mTouchSlop * mTouchSlop;
@@ -1358,8 +1639,7 @@ public class CustomViewDragHelper {
      * @return true if any of the edges specified were initially touched in the current gesture
      */
     public boolean isEdgeTouched(int edges) {
-        final int count = mInitialEdgesTouched.length;
-        for (int i = 0; i < count; i++) {
+        for (int i = 0; i < PointerSlots.MAX_POINTERS; i++) {
             if (isEdgeTouched(edges, i)) {
                 return true;
             }
@@ -1378,38 +1658,114 @@ public class CustomViewDragHelper {
      * @return true if any of the edges specified were initially touched in the current gesture
      */
     public boolean isEdgeTouched(int edges, int pointerId) {
-        return isPointerDown(pointerId) && (mInitialEdgesTouched[pointerId] & edges) != 0;
+        return isPointerDown(pointerId) && (mPointers.getInitialEdgesTouched(pointerId) & edges) != 0;
     }
 
     private void releaseViewForPointerUp() {
-        mVelocityTracker.computeCurrentVelocity(1000, mMaxVelocity);
+        mVelocityEstimator.computeCurrentVelocity(1000, mMaxVelocity);
         final float xvel = clampMag(
-                VelocityTrackerCompat.getXVelocity(mVelocityTracker, mActivePointerId),
+                mVelocityEstimator.getXVelocity(mActivePointerId),
                 mMinVelocity, mMaxVelocity);
         final float yvel = clampMag(
-                VelocityTrackerCompat.getYVelocity(mVelocityTracker, mActivePointerId),
+                mVelocityEstimator.getYVelocity(mActivePointerId),
                 mMinVelocity, mMaxVelocity);
+        mSettleEngine.setVelocity(xvel, yvel);
         dispatchViewReleased(xvel, yvel);
     }
 
+    /**
+     * Drag the captured view to the newest coalesced position of the active pointer.
+     */
+    private void flushPendingDrag() {
+        if (!mHasPendingDrag) {
+            return;
+        }
+        mHasPendingDrag = false;
+        if (mDragState != STATE_DRAGGING) {
+            return;
+        }
+
+        dragActivePointerTo(mPendingDragX, mPendingDragY);
+    }
+
+    /**
+     * Move the captured view along with the active pointer, ahead of it by the predicted
+     * motion if touch prediction is enabled.
+     */
+    private void dragActivePointerTo(float x, float y) {
+        final int left = getViewLeft(mCapturedView);
+        final int top = getViewTop(mCapturedView);
+        // Where the view was last placed for, in pointer coordinates
+        final float fromX = mPointers.getLastMotionX(mActivePointerId) + mAppliedPredictionX;
+        final float fromY = mPointers.getLastMotionY(mActivePointerId) + mAppliedPredictionY;
+
+        float predictionX = 0;
+        float predictionY = 0;
+        if (mPredictionHorizon > 0) {
+            mTouchPredictor.predict(
+                    AnimationUtils.currentAnimationTimeMillis() + mPredictionHorizon);
+            predictionX = mTouchPredictor.getOffsetX();
+            predictionY = mTouchPredictor.getOffsetY();
+            if (predictionX != 0) {
+                final int dx = (int) (x + predictionX - fromX);
+                final int clamped =
+                        mCallback.clampViewPositionHorizontal(mCapturedView, left + dx, dx);
+                if (clamped != left + dx) {
+                    predictionX = 0;
+                }
+            }
+            if (predictionY != 0) {
+                final int dy = (int) (y + predictionY - fromY);
+                final int clamped =
+                        mCallback.clampViewPositionVertical(mCapturedView, top + dy, dy);
+                if (clamped != top + dy) {
+                    predictionY = 0;
+                }
+            }
+        }
+
+        final int idx = (int) (x + predictionX - fromX);
+        final int idy = (int) (y + predictionY - fromY);
+        dragTo(left + idx, top + idy, idx, idy);
+
+        // Keep the sub-pixel remainder for the next move, slow drags would stall otherwise
+        mPointers.saveLastMotion(mActivePointerId,
+                fromX + idx - predictionX, fromY + idy - predictionY);
+        mAppliedPredictionX = predictionX;
+        mAppliedPredictionY = predictionY;
+    }
+
+    private void clearPrediction() {
+        mTouchPredictor.clear();
+        mAppliedPredictionX = 0;
+        mAppliedPredictionY = 0;
+    }
+
+    private void cancelPendingDrag() {
+        mHasPendingDrag = false;
+        if (mDragFramePosted) {
+            mDragFramePosted = false;
+            Choreographer.getInstance().removeFrameCallback(mDragFrameCallback);
+        }
+    }
+
     private void dragTo(int left, int top, int dx, int dy) {
         int clampedX = left;
         int clampedY = top;
-        final int oldLeft = mCapturedView.getLeft();
-        final int oldTop = mCapturedView.getTop();
+        final int oldLeft = getViewLeft(mCapturedView);
+        final int oldTop = getViewTop(mCapturedView);
         if (dx != 0) {
             clampedX = mCallback.clampViewPositionHorizontal(mCapturedView, left, dx);
-//            mCapturedView.offsetLeftAndRight(clampedX - oldLeft);
         }
         if (dy != 0) {
             clampedY = mCallback.clampViewPositionVertical(mCapturedView, top, dy);
-//            mCapturedView.offsetTopAndBottom(clampedY - oldTop);
         }
 
         if (dx != 0 || dy != 0) {
+            mSettleEngine.setPosition(clampedX, clampedY);
             final int clampedDx = clampedX - oldLeft;
             final int clampedDy = clampedY - oldTop;
-            mCallback.onViewPositionChanged(mCapturedView, clampedX, clampedY,
+            dispatchViewPositionChanged(mCapturedView, clampedX, clampedY,
                     clampedDx, clampedDy);
         }
     }
@@ -1440,10 +1796,7 @@ public class CustomViewDragHelper {
         if (view == null) {
             return false;
         }
-        return x >= view.getLeft() &&
-                x < view.getRight() &&
-                y >= view.getTop() &&
-                y < view.getBottom();
+        return isPointInView(view, x, y);
     }
 
     /**
@@ -1456,16 +1809,101 @@ public class CustomViewDragHelper {
      */
     public View findTopChildUnder(int x, int y) {
         final int childCount = mParentView.getChildCount();
+        if (mHitTestIndexEnabled) {
+            if (mHitTestIndexDirty || mHitGrid.getItemCount() != childCount
+                    || mHitGrid.getWidth() != Math.max(mParentView.getWidth(), 1)
+                    || mHitGrid.getHeight() != Math.max(mParentView.getHeight(), 1)) {
+                rebuildHitTestIndex();
+            }
+            // The grid bounds are rounded outwards, so each candidate gets the exact test.
+            for (int rank = mHitGrid.findTopItemAt(x, y, childCount); rank >= 0;
+                    rank = mHitGrid.findTopItemAt(x, y, rank)) {
+                final View child = mHitTestViews[rank];
+                if (isPointInView(child, x, y)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
         for (int i = childCount - 1; i >= 0; i--) {
             final View child = mParentView.getChildAt(mCallback.getOrderedChildIndex(i));
-            if (x >= child.getLeft() && x < child.getRight() &&
-                    y >= child.getTop() && y < child.getBottom()) {
+            if (isPointInView(child, x, y)) {
                 return child;
             }
         }
         return null;
     }
 
+    private void rebuildHitTestIndex() {
+        final int childCount = mParentView.getChildCount();
+        if (mHitTestViews.length < childCount) {
+            mHitTestViews = new View[childCount];
+        }
+        for (int i = childCount; i < mHitTestViews.length; i++) {
+            mHitTestViews[i] = null;
+        }
+        mHitTestRanks.clear();
+        mHitGrid.reset(mParentView.getWidth(), mParentView.getHeight(), childCount);
+        for (int i = 0; i < childCount; i++) {
+            final View child = mParentView.getChildAt(mCallback.getOrderedChildIndex(i));
+            mHitTestViews[i] = child;
+            mHitTestRanks.put(child, i);
+            indexChild(i, child);
+        }
+        mHitTestIndexDirty = false;
+    }
+
+    private void indexChild(int rank, View child) {
+        final float left = getVisualLeft(child);
+        final float top = getVisualTop(child);
+        mHitGrid.set(rank, (int) Math.floor(left), (int) Math.floor(top),
+                (int) Math.ceil(left + child.getWidth() * child.getScaleX()),
+                (int) Math.ceil(top + child.getHeight() * child.getScaleY()));
+    }
+
+    private void dispatchViewPositionChanged(View view, int left, int top, int dx, int dy) {
+        mCallback.onViewPositionChanged(view, left, top, dx, dy);
+        updateHitTestIndex(view);
+    }
+
+    /**
+     * Hit test against the bounds the view is drawn at, taking translation and scale
+     * into account. Without transforms this is the view's layout rectangle.
+     */
+    private static boolean isPointInView(View view, int x, int y) {
+        final float left = getVisualLeft(view);
+        final float top = getVisualTop(view);
+        return x >= left &&
+                x < left + view.getWidth() * view.getScaleX() &&
+                y >= top &&
+                y < top + view.getHeight() * view.getScaleY();
+    }
+
+    private static float getVisualLeft(View view) {
+        return view.getLeft() + view.getTranslationX() + view.getPivotX() * (1f - view.getScaleX());
+    }
+
+    private static float getVisualTop(View view) {
+        return view.getTop() + view.getTranslationY() + view.getPivotY() * (1f - view.getScaleY());
+    }
+
+    /**
+     * @return The left edge the view is drawn at, which the parent may move with
+     *         transforms instead of layout while dragging or settling.
+     */
+    public static int getViewLeft(View view) {
+        return Math.round(getVisualLeft(view));
+    }
+
+    /**
+     * @return The top edge the view is drawn at, which the parent may move with
+     *         transforms instead of layout while dragging or settling.
+     */
+    public static int getViewTop(View view) {
+        return Math.round(getVisualTop(view));
+    }
+
     private int getEdgesTouched(int x, int y) {
         int result = 0;
 
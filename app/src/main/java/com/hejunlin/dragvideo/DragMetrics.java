@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+/**
+ * Frame statistics of a single drag or settle of {@link DragVideoView}.
+ *
+ * <p>One instance is reused for every phase, so collecting metrics does not allocate.
+ * Listeners must copy any values they want to keep before returning.</p>
+ */
+public class DragMetrics {
+    /**
+     * The user is dragging the player
+     */
+    public static final int PHASE_DRAG = 1;
+
+    /**
+     * The player is settling after a release or a programmatic slide
+     */
+    public static final int PHASE_SETTLE = 2;
+
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = 1000000000L / 60;
+
+    private long mFrameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+
+    private int mPhase;
+    private boolean mActive;
+    private long mStartNanos;
+    private long mEndNanos;
+    private long mLastFrameNanos;
+
+    private int mFrameCount;
+    private int mDroppedFrames;
+    private long mWorstFrameIntervalNanos;
+    private long mTotalFrameIntervalNanos;
+
+    private int mPlannedSettleDuration;
+
+    private int mInputCount;
+    private long mTotalInputLatencyMillis;
+    private long mWorstInputLatencyMillis;
+
+    /**
+     * @param frameIntervalNanos Expected interval between two frames of the display
+     */
+    public void setFrameIntervalNanos(long frameIntervalNanos) {
+        if (frameIntervalNanos > 0) {
+            mFrameIntervalNanos = frameIntervalNanos;
+        }
+    }
+
+    public void begin(int phase, long nowNanos) {
+        mPhase = phase;
+        mActive = true;
+        mStartNanos = nowNanos;
+        mEndNanos = nowNanos;
+        mLastFrameNanos = 0;
+        mFrameCount = 0;
+        mDroppedFrames = 0;
+        mWorstFrameIntervalNanos = 0;
+        mTotalFrameIntervalNanos = 0;
+        mPlannedSettleDuration = 0;
+        mInputCount = 0;
+        mTotalInputLatencyMillis = 0;
+        mWorstInputLatencyMillis = 0;
+    }
+
+    public void end(long nowNanos) {
+        mEndNanos = nowNanos;
+        mActive = false;
+    }
+
+    public boolean isActive() {
+        return mActive;
+    }
+
+    /**
+     * Record a frame of the current phase, sampled once per vsync.
+     *
+     * @param nowNanos Frame time, such as the one given to a Choreographer frame callback
+     */
+    public void onFrame(long nowNanos) {
+        if (!mActive) {
+            return;
+        }
+        if (mFrameCount > 0) {
+            final long interval = nowNanos - mLastFrameNanos;
+            mTotalFrameIntervalNanos += interval;
+            if (interval > mWorstFrameIntervalNanos) {
+                mWorstFrameIntervalNanos = interval;
+            }
+            // An interval spanning n vsyncs means n - 1 frames were missed
+            final long missed = (interval + mFrameIntervalNanos / 2) / mFrameIntervalNanos - 1;
+            if (missed > 0) {
+                mDroppedFrames += missed;
+            }
+        }
+        mLastFrameNanos = nowNanos;
+        mFrameCount++;
+    }
+
+    /**
+     * Record the time from a touch event to the layout it caused.
+     */
+    public void onInputLatency(long latencyMillis) {
+        if (!mActive) {
+            return;
+        }
+        mInputCount++;
+        mTotalInputLatencyMillis += latencyMillis;
+        if (latencyMillis > mWorstInputLatencyMillis) {
+            mWorstInputLatencyMillis = latencyMillis;
+        }
+    }
+
+    public void setPlannedSettleDuration(int durationMillis) {
+        mPlannedSettleDuration = durationMillis;
+    }
+
+    /**
+     * @return {@link #PHASE_DRAG} or {@link #PHASE_SETTLE}
+     */
+    public int getPhase() {
+        return mPhase;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    public int getDroppedFrames() {
+        return mDroppedFrames;
+    }
+
+    public float getWorstFrameIntervalMillis() {
+        return mWorstFrameIntervalNanos / 1000000f;
+    }
+
+    public float getMeanFrameIntervalMillis() {
+        return mFrameCount > 1 ? mTotalFrameIntervalNanos / 1000000f / (mFrameCount - 1) : 0f;
+    }
+
+    /**
+     * @return settle duration computed by the drag helper, 0 for drags
+     */
+    public int getPlannedSettleDuration() {
+        return mPlannedSettleDuration;
+    }
+
+    /**
+     * @return wall time of the phase in milliseconds, for settles the time from
+     * STATE_SETTLING to STATE_IDLE
+     */
+    public float getActualDurationMillis() {
+        return (mEndNanos - mStartNanos) / 1000000f;
+    }
+
+    public float getMeanInputLatencyMillis() {
+        return mInputCount > 0 ? (float) mTotalInputLatencyMillis / mInputCount : 0f;
+    }
+
+    public long getWorstInputLatencyMillis() {
+        return mWorstInputLatencyMillis;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import android.util.Log;
+
+import java.io.PrintWriter;
+
+/**
+ * 拖拽过程的轻量级跟踪，替代每帧拼接字符串的Log.d
+ *
+ * <p>Call sites must be guarded with <code>if (DragTrace.ENABLED)</code>. ENABLED is a
+ * compile time constant taken from the <code>DRAG_TRACE</code> build config field, so
+ * javac removes the guarded calls entirely from builds where it is false. When enabled,
+ * every call writes one primitive record into a preallocated {@link TraceBuffer};
+ * {@link #dump()} writes the records to logcat on demand and
+ * {@link #dump(String, PrintWriter)} writes them to <code>dumpsys activity</code>.</p>
+ */
+public final class DragTrace {
+    public static final boolean ENABLED = BuildConfig.DRAG_TRACE;
+
+    private static final String TAG = DragTrace.class.getSimpleName();
+
+    private static final int CAPACITY = 4096;
+
+    /**
+     * 事件类型，参数含义见各常量
+     */
+    public static final int EVENT_VERTICAL_RANGE = 1; // range
+    public static final int EVENT_HORIZONTAL_RANGE = 2; // range
+    public static final int EVENT_CLAMP_VERTICAL = 3; // top, dy, newTop
+    public static final int EVENT_CLAMP_HORIZONTAL = 4; // left, dx, newLeft
+    public static final int EVENT_POSITION_CHANGED = 5; // left, top, dragDirect
+    public static final int EVENT_SURFACE_SIZE_CHANGED = 6; // width, height
+
+    private static final TraceBuffer sBuffer = new TraceBuffer(ENABLED ? CAPACITY : 1);
+
+    private DragTrace() {
+    }
+
+    public static void record(int event, int arg0) {
+        record(event, arg0, 0, 0);
+    }
+
+    public static void record(int event, int arg0, int arg1) {
+        record(event, arg0, arg1, 0);
+    }
+
+    public static void record(int event, int arg0, int arg1, int arg2) {
+        if (!ENABLED) {
+            return;
+        }
+        sBuffer.record(System.nanoTime(), event, arg0, arg1, arg2);
+    }
+
+    /**
+     * Write every held record to logcat, oldest first, and clear the buffer.
+     */
+    public static void dump() {
+        if (!ENABLED) {
+            return;
+        }
+        final int size = sBuffer.size();
+        Log.d(TAG, ">> dump: records=" + size + ", dropped=" + sBuffer.getDroppedCount());
+        for (int i = 0; i < size; i++) {
+            Log.d(TAG, formatRecord(i));
+        }
+        sBuffer.clear();
+    }
+
+    /**
+     * Write every held record to an activity dump, oldest first. Unlike {@link #dump()}
+     * the buffer is kept, so repeated dumps show the latest drags.
+     */
+    public static void dump(String prefix, PrintWriter writer) {
+        if (!ENABLED) {
+            return;
+        }
+        final int size = sBuffer.size();
+        writer.print(prefix);
+        writer.print("DragTrace records=");
+        writer.print(size);
+        writer.print(" dropped=");
+        writer.println(sBuffer.getDroppedCount());
+        for (int i = 0; i < size; i++) {
+            writer.print(prefix);
+            writer.print("  ");
+            writer.println(formatRecord(i));
+        }
+    }
+
+    private static String formatRecord(int index) {
+        return sBuffer.getTime(index) + " " + eventName(sBuffer.getEvent(index)) + " "
+                + sBuffer.getArg0(index) + "," + sBuffer.getArg1(index) + "," + sBuffer.getArg2(index);
+    }
+
+    private static String eventName(int event) {
+        switch (event) {
+            case EVENT_VERTICAL_RANGE:
+                return "getViewVerticalDragRange";
+            case EVENT_HORIZONTAL_RANGE:
+                return "getViewHorizontalDragRange";
+            case EVENT_CLAMP_VERTICAL:
+                return "clampViewPositionVertical";
+            case EVENT_CLAMP_HORIZONTAL:
+                return "clampViewPositionHorizontal";
+            case EVENT_POSITION_CHANGED:
+                return "onViewPositionChanged";
+            case EVENT_SURFACE_SIZE_CHANGED:
+                return "onSurfaceTextureSizeChanged";
+            default:
+                return String.valueOf(event);
+        }
+    }
+}
@@ -20,13 +20,17 @@ package com.hejunlin.dragvideo;
 
 import android.content.Context;
 import android.graphics.Color;
+import android.os.SystemClock;
 import android.support.v4.view.MotionEventCompat;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.util.DisplayMetrics;
+import android.view.Choreographer;
+import android.view.Display;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.WindowManager;
 
 import java.lang.ref.WeakReference;
 
@@ -61,6 +65,11 @@ public class DragVideoView extends ViewGroup {
      */
     private static final float VIDEO_RATIO = 16f / 9f;
 
+    /**
+     * 小窗播放器网格的列数
+     */
+    private static final int MINI_PLAYER_COLUMNS = 3;
+
     /**
      * 当播放器最小化后，其在水平方向的偏移量常量
      */
@@ -68,6 +77,11 @@ public class DragVideoView extends ViewGroup {
     private static final float LEFT_DRAG_DISAPPEAR_OFFSET = (4f - PLAYER_RATIO) / (4f + 4f * PLAYER_RATIO);
     private static final float RIGHT_DRAG_DISAPPEAR_OFFSET = (4f + PLAYER_RATIO) / (4f + 4f * PLAYER_RATIO);
 
+    /**
+     * 触摸预测的时间：从当前帧到显示出来大约需要的时间
+     */
+    private static final int TOUCH_PREDICTION_HORIZON = 16; // ms
+
     private static final float MAX_OFFSET_RATIO = (1f - PLAYER_RATIO) / (1f + PLAYER_RATIO);
     private static final String TAG = DragVideoView.class.getSimpleName();
 
@@ -77,11 +91,20 @@ public class DragVideoView extends ViewGroup {
     private CustomViewDragHelper mDragHelper;
 
     /**
-     * 本ViewGroup只能包含2个直接子组件
+     * 本ViewGroup的前2个直接子组件
      */
     private View mPlayer;
     private View mDesc;
 
+    /**
+     * 其余的直接子组件作为小窗播放器，按网格排列，可以各自拖动
+     * mMiniPlayerCells[i]为mMiniPlayers[i]所在的格子
+     */
+    private View[] mMiniPlayers = new View[0];
+    private int[] mMiniPlayerCells = new int[0];
+    private int mMiniPlayerWidth;
+    private int mMiniPlayerHeight;
+
     /**
      * 第一次调用onMeasure时调用
      */
@@ -127,6 +150,11 @@ public class DragVideoView extends ViewGroup {
      */
     private int mPlayerMinWidth;
 
+    /**
+     * 每个垂直拖动位置对应的播放器宽、高、left、top，尺寸变化时才重新计算
+     */
+    private final PlayerGeometry mGeometry = new PlayerGeometry();
+
     /**
      * 当前拖动的方向
      */
@@ -160,6 +188,78 @@ public class DragVideoView extends ViewGroup {
      */
     private int mDisappearDirect = SLIDE_RESTORE_ORIGINAL;
 
+    /**
+     * 拖动/归位过程的帧统计，复用同一个对象避免分配
+     */
+    private final DragMetrics mMetrics = new DragMetrics();
+    private MetricsListener mMetricsListener;
+
+    /**
+     * 拖动/归位期间每个vsync回调一次，按实际出帧时间统计，而不是按位置更新次数
+     */
+    private final Choreographer.FrameCallback mMetricsFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (mMetricsListener == null || !mMetrics.isActive())
+                return;
+            mMetrics.onFrame(frameTimeNanos);
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
+
+    /**
+     * 最近一次尚未布局的ACTION_MOVE事件时间，用于统计触摸到布局的延迟
+     */
+    private long mPendingEventTime;
+
+    /**
+     * 是否以属性变换（缩放+平移）的方式拖动播放器
+     * 开启后拖动和归位过程中播放器保持最大化时的布局，只修改scale/translation，
+     * 不再每帧measure/layout，TextureView的buffer也不会每帧重新分配，停止后再真正布局一次
+     */
+    private boolean mTransformDragEnabled = false;
+
+    /**
+     * 当前是否处于变换拖动中
+     */
+    private boolean mIsTransforming = false;
+
+    /**
+     * 拖动/归位时mDesc硬件层的显存预算（字节），按ARGB_8888每像素4字节计算，0表示不使用
+     * 默认为一屏大小
+     */
+    private int mDescLayerBudget;
+
+    /**
+     * mDesc当前是否被提升为硬件层，以及提升前的layerType
+     */
+    private boolean mIsDescLayered = false;
+    private int mDescLayerTypeBefore;
+
+    /**
+     * 拖动进度回调，每个vsync最多回调一次
+     */
+    private DragProgressListener mDragProgressListener;
+    private boolean mIsDragProgressPending = false;
+
+    /**
+     * 播放器拖动状态回调
+     */
+    private DragStateListener mDragStateListener;
+
+    /**
+     * 触摸事件记录，为null时不记录
+     */
+    private TouchRecorder mTouchRecorder;
+    private final Runnable mDispatchDragProgress = new Runnable() {
+        @Override
+        public void run() {
+            mIsDragProgressPending = false;
+            if (mDragProgressListener != null)
+                mDragProgressListener.onDragProgress(mVerticalOffset, mHorizontalOffset);
+        }
+    };
+
     public DragVideoView(Context context) {
         this(context, null);
     }
@@ -176,6 +276,9 @@ public class DragVideoView extends ViewGroup {
     private void init() {
         mDragHelper = CustomViewDragHelper.create(this, 1f, new MyHelperCallback());
         setBackgroundColor(Color.TRANSPARENT);
+
+        DisplayMetrics dm = getResources().getDisplayMetrics();
+        mDescLayerBudget = dm.widthPixels * dm.heightPixels * 4;
     }
 
     public void restorePosition() {//恢复原始状态
@@ -185,6 +288,7 @@ public class DragVideoView extends ViewGroup {
         mTop = mVerticalRange;
         mIsMinimum = true;
         mVerticalOffset = 1f;
+        scheduleDragProgress();
     }
 
     public void show() {
@@ -193,6 +297,13 @@ public class DragVideoView extends ViewGroup {
         maximize();
     }
 
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        if (mTouchRecorder != null)
+            mTouchRecorder.record(event);
+        return super.dispatchTouchEvent(event);
+    }
+
     @Override
     public boolean onInterceptTouchEvent(MotionEvent event) {
         return mDragHelper.shouldInterceptTouchEvent(event);
@@ -200,6 +311,15 @@ public class DragVideoView extends ViewGroup {
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
+        boolean isMiniPlayerHit = mMiniPlayers.length > 0
+                && (isMiniPlayer(mDragHelper.getCapturedView())
+                || isMiniPlayer(mDragHelper.findTopChildUnder((int) event.getX(),
+                (int) event.getY())));
+        if (isMiniPlayerHit) {//小窗播放器在最上层，交给mDragHelper处理
+            mDragHelper.processTouchEvent(event);
+            return true;
+        }
+
         boolean isHit = mDragHelper.isViewUnder(mPlayer, (int) event.getX(), (int) event.getY());
 
         if (isHit) {
@@ -211,6 +331,7 @@ public class DragVideoView extends ViewGroup {
                 break;
 
                 case MotionEvent.ACTION_MOVE:
+                    mPendingEventTime = event.getEventTime();
                     if (mDragDirect == NONE) {
                         int dx = Math.abs(mDownX - (int) event.getX());//上一次getX()时和在MOVE过程中getX()的差值
                         int dy = Math.abs(mDownY - (int) event.getY());//上一次getY()时和在MOVE过程中getY()的差值
@@ -221,6 +342,7 @@ public class DragVideoView extends ViewGroup {
                                 mDragDirect = VERTICAL;
                             else
                                 mDragDirect = HORIZONTAL;
+                            updateDescLayer(mDragHelper.getViewDragState());//方向确定后才知道mDesc是否会被改变尺寸
                         }
                     }
                     break;
@@ -290,7 +412,7 @@ public class DragVideoView extends ViewGroup {
     }
 
     private boolean slideHorizontalTo(float slideOffset) {//滑动到水平方向上某位置
-        int leftBound = -mPlayer.getWidth();
+        int leftBound = -getPlayerWidth();
         int x = (int) (leftBound + slideOffset * mHorizontalRange);
         if (mDragHelper.smoothSlideViewTo(mPlayer, x, mTop)) {
             ViewCompat.postInvalidateOnAnimation(this);
@@ -302,11 +424,30 @@ public class DragVideoView extends ViewGroup {
     private class MyHelperCallback extends CustomViewDragHelper.Callback { //继承CustomViewDragHelper的Callback
         @Override
         public boolean tryCaptureView(View child, int pointerId) {//当前view是否允许拖动
-            return child == mPlayer; //如果是显示视频区域的view
+            return child == mPlayer || isMiniPlayer(child); //如果是显示视频区域的view
         }
 
         @Override
         public void onViewDragStateChanged(int state) { //当ViewDragHelper状态发生变化时回调（IDLE,DRAGGING,SETTING[自动滚动时]）
+            if (isMiniPlayer(mDragHelper.getCapturedView()))
+                return;//小窗播放器没有拖动状态
+            onPlayerDragStateChanged(state);
+        }
+
+        @Override
+        public void onViewSettled(View settledChild) {
+            //播放器归位时如果另一个小窗被拖动，归位在mDragHelper中独立完成，这里补上IDLE
+            if (settledChild == mPlayer)
+                onPlayerDragStateChanged(CustomViewDragHelper.STATE_IDLE);
+        }
+
+        private void onPlayerDragStateChanged(int state) {
+            dispatchMetrics(state);
+            if (mTransformDragEnabled && state != CustomViewDragHelper.STATE_IDLE && !mIsTransforming)
+                beginTransform();
+            else if (mIsTransforming && state == CustomViewDragHelper.STATE_IDLE)
+                endTransform();
+            updateDescLayer(state);
             if (state == CustomViewDragHelper.STATE_IDLE) {
                 if (mIsMinimum && mDragDirect == HORIZONTAL && mDisappearDirect != SLIDE_RESTORE_ORIGINAL) {
                     if (mCallback != null && mCallback.get() != null)
@@ -318,59 +459,78 @@ public class DragVideoView extends ViewGroup {
                 }
                 mDragDirect = NONE;
             }
+            if (mDragStateListener != null)
+                mDragStateListener.onDragStateChanged(state);
         }
 
         @Override
         public int getViewVerticalDragRange(View child) { //垂直方向拖动的最大距离
+            if (isMiniPlayer(child))
+                return getHeight() - getPaddingTop() - getPaddingBottom() - child.getHeight();
             int range = 0;
             if (child == mPlayer && mDragDirect == VERTICAL) {
                 range = mVerticalRange;
             }
-            Log.d(TAG, ">> getViewVerticalDragRange-range:" + range);
+            if (DragTrace.ENABLED)
+                DragTrace.record(DragTrace.EVENT_VERTICAL_RANGE, range);
             return range;
         }
 
         @Override
         public int getViewHorizontalDragRange(View child) { //横向拖动的最大距离
+            if (isMiniPlayer(child))
+                return getWidth() - getPaddingLeft() - getPaddingRight() - child.getWidth();
             int range = 0;
 
             if (child == mPlayer && mIsMinimum && mDragDirect == HORIZONTAL) {
                 range = mHorizontalRange;
             }
-            Log.d(TAG, ">> getViewHorizontalDragRange-range:"+range);
+            if (DragTrace.ENABLED)
+                DragTrace.record(DragTrace.EVENT_HORIZONTAL_RANGE, range);
             return range;
         }
 
         @Override
         public int clampViewPositionVertical(View child, int top, int dy) {//该方法中对child移动的边界进行控制，left , top 分别为即将移动到的位置
+            if (isMiniPlayer(child))
+                return Math.min(Math.max(top, getPaddingTop()),
+                        getHeight() - getPaddingBottom() - child.getHeight());
             int newTop = mTop;
-            Log.d(TAG, ">> clampViewPositionVertical:" + top + "," + dy);
             if (child == mPlayer && mDragDirect == VERTICAL) {
                 int topBound = mMinTop;
                 int bottomBound = topBound + mVerticalRange;
                 newTop = Math.min(Math.max(top, topBound), bottomBound);
             }
-            Log.d(TAG, ">> clampViewPositionVertical:newTop-"+newTop);
+            if (DragTrace.ENABLED)
+                DragTrace.record(DragTrace.EVENT_CLAMP_VERTICAL, top, dy, newTop);
             return newTop;
         }
 
         @Override
         public int clampViewPositionHorizontal(View child, int left, int dx) { //返回横向坐标左右边界值  
+            if (isMiniPlayer(child))
+                return Math.min(Math.max(left, getPaddingLeft()),
+                        getWidth() - getPaddingRight() - child.getWidth());
             int newLeft = mLeft;
-            Log.d(TAG, ">> clampViewPositionHorizontal:" + left + "," + dx);
             if (child == mPlayer && mIsMinimum && mDragDirect == HORIZONTAL) {
-                int leftBound = -mPlayer.getWidth();
+                int leftBound = -getPlayerWidth();
                 int rightBound = leftBound + mHorizontalRange;
                 newLeft = Math.min(Math.max(left, leftBound), rightBound);
             }
-            Log.d(TAG, ">> clampViewPositionHorizontal:newLeft-"+newLeft+",mLeft-"+mLeft);
+            if (DragTrace.ENABLED)
+                DragTrace.record(DragTrace.EVENT_CLAMP_HORIZONTAL, left, dx, newLeft);
             return newLeft;
         }
 
         @Override
         public void onViewPositionChanged(View changedView, int left, int top, int dx, int dy) { //view在拖动过程坐标发生变化时会调用此方法，包括两个时间段：手动拖动和自动滚动 
-            Log.d(TAG, ">> onViewPositionChanged:" + "mDragDirect-" + mDragDirect + ",left-" + left + ",top-" + top + ",mLeft-" + mLeft);
-            Log.d(TAG, ">> onViewPositionChanged-mPlayer:left-"+mPlayer.getLeft()+",top-"+mPlayer.getTop());
+            if (isMiniPlayer(changedView)) {//小窗只需要平移，不影响其它子组件的布局
+                changedView.offsetLeftAndRight(dx);
+                changedView.offsetTopAndBottom(dy);
+                return;
+            }
+            if (DragTrace.ENABLED)
+                DragTrace.record(DragTrace.EVENT_POSITION_CHANGED, left, top, mDragDirect);
             if (mDragDirect == VERTICAL) { //垂直方向
                 mTop = top;
                 mVerticalOffset = (float) (mTop - mMinTop) / mVerticalRange;
@@ -383,6 +543,10 @@ public class DragVideoView extends ViewGroup {
 
         @Override
         public void onViewReleased(View releasedChild, float xvel, float yvel) {//
+            if (isMiniPlayer(releasedChild)) {
+                releaseMiniPlayer(releasedChild);
+                return;
+            }
             if (mDragDirect == VERTICAL) { //如果拖拽的方向是在垂直方向上
                 if (yvel > 0 || (yvel == 0 && mVerticalOffset >= 0.5f))
                     minimize();
@@ -409,11 +573,20 @@ public class DragVideoView extends ViewGroup {
     @Override
     protected void onFinishInflate() {
         super.onFinishInflate();
-        if (getChildCount() != 2)
-            throw new RuntimeException("this ViewGroup must only contains 2 views");
+        if (getChildCount() < 2)
+            throw new RuntimeException("this ViewGroup must contains at least 2 views");
 
         mPlayer = getChildAt(0);
         mDesc = getChildAt(1);
+
+        mMiniPlayers = new View[getChildCount() - 2];
+        mMiniPlayerCells = new int[mMiniPlayers.length];
+        for (int i = 0; i < mMiniPlayers.length; i++) {
+            mMiniPlayers[i] = getChildAt(i + 2);
+            mMiniPlayerCells[i] = i;
+        }
+        //有小窗时子组件较多，用空间索引做点击检测
+        mDragHelper.setHitTestIndexEnabled(mMiniPlayers.length > 0);
     }
 
     @Override
@@ -427,31 +600,73 @@ public class DragVideoView extends ViewGroup {
                 resolveSizeAndState(maxHeight, heightMeasureSpec, 0));
 
         if (!mIsFinishInit) {
-            mMinTop = getPaddingTop();
-            mPlayerMinWidth = mPlayer.getMeasuredWidth();
-//            mPlayerMaxWidth = (int)(mPlayerMinWidth / PLAYER_RATIO);
-            mHorizontalRange = mPlayerMaxWidth + mPlayerMinWidth;
-            mVerticalRange = getMeasuredHeight() - getPaddingTop() - getPaddingBottom()
-                    - mPlayer.getMeasuredHeight();
-
             restorePosition();
             mIsFinishInit = true;
         }
     }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (!mIsFinishInit)
+            return;
+        //尺寸与第一次measure时不同（如分屏、旋转但Activity未重建）时按当前偏移量重新计算几何，不回到初始状态
+        if (!updateGeometry(MeasureSpec.makeMeasureSpec(w, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(h, MeasureSpec.EXACTLY)))
+            return;
+        mDragHelper.abort();
+        int position = getPlayerPosition();
+        mTop = mGeometry.getTop(position);
+        mLeft = mGeometry.getLeft(position);
+        mHorizontalOffset = ORIGINAL_MIN_OFFSET;
+        mDragDirect = NONE;
+        justMeasurePlayer();//onMeasure时用的还是旧的几何
+    }
+
+    /**
+     * 根据本组件的尺寸计算播放器的几何和拖动范围
+     *
+     * @return 尺寸是否改变
+     */
+    private boolean updateGeometry(int widthMeasureSpec, int heightMeasureSpec) {
+        final LayoutParams lp = mPlayer.getLayoutParams();
+        int measureWidth = getChildMeasureSpec(widthMeasureSpec,
+                getPaddingLeft() + getPaddingRight(), lp.width);
+        int maxWidth = MeasureSpec.getSize(measureWidth);
+        if (!mGeometry.setup(maxWidth, (int) (maxWidth * PLAYER_RATIO), VIDEO_RATIO,
+                MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft() - getPaddingRight(),
+                MeasureSpec.getSize(heightMeasureSpec) - getPaddingTop() - getPaddingBottom(),
+                getPaddingTop()))
+            return false;
+
+        mMinTop = getPaddingTop();
+        mPlayerMaxWidth = maxWidth;
+        mVerticalRange = mGeometry.getVerticalRange();
+        mPlayerMinWidth = mGeometry.getWidth(mVerticalRange);
+        mHorizontalRange = mPlayerMaxWidth + mPlayerMinWidth;
+        return true;
+    }
+
     private void customMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         measurePlayer(widthMeasureSpec, heightMeasureSpec);
         measureDesc(widthMeasureSpec, heightMeasureSpec);
+        measureMiniPlayers(widthMeasureSpec);
     }
 
-    private void measurePlayer(int widthMeasureSpec, int heightMeasureSpec) {
-        final LayoutParams lp = mPlayer.getLayoutParams();
-        if (!mIsFinishInit) {
-            int measureWidth = getChildMeasureSpec(widthMeasureSpec,
-                    getPaddingLeft() + getPaddingRight(), lp.width);
-
-            mPlayerMaxWidth = MeasureSpec.getSize(measureWidth);
+    private void measureMiniPlayers(int widthMeasureSpec) {
+        mMiniPlayerWidth = (MeasureSpec.getSize(widthMeasureSpec) - getPaddingLeft() - getPaddingRight())
+                / MINI_PLAYER_COLUMNS;
+        mMiniPlayerHeight = (int) (mMiniPlayerWidth / VIDEO_RATIO);
+        int childWidthMeasureSpec = MeasureSpec.makeMeasureSpec(mMiniPlayerWidth, MeasureSpec.EXACTLY);
+        int childHeightMeasureSpec = MeasureSpec.makeMeasureSpec(mMiniPlayerHeight, MeasureSpec.EXACTLY);
+        for (View miniPlayer : mMiniPlayers) {
+            miniPlayer.measure(childWidthMeasureSpec, childHeightMeasureSpec);
         }
+    }
+
+    private void measurePlayer(int widthMeasureSpec, int heightMeasureSpec) {
+        if (!mIsFinishInit)
+            updateGeometry(widthMeasureSpec, heightMeasureSpec);
 
         justMeasurePlayer();
     }
@@ -461,24 +676,96 @@ public class DragVideoView extends ViewGroup {
     }
 
     private void justMeasurePlayer() {
-        int widthCurSize = (int) (mPlayerMaxWidth * (1f - mVerticalOffset * (1f - PLAYER_RATIO)));
-        int childWidthMeasureSpec = MeasureSpec.makeMeasureSpec(widthCurSize, MeasureSpec.EXACTLY);
-
-        int heightSize = (int) (MeasureSpec.getSize(childWidthMeasureSpec) / VIDEO_RATIO);
-        int childHeightMeasureSpec = MeasureSpec.makeMeasureSpec(heightSize, MeasureSpec.EXACTLY);
+        int position = mIsTransforming ? 0 : getPlayerPosition();
+        int childWidthMeasureSpec = MeasureSpec.makeMeasureSpec(mGeometry.getWidth(position),
+                MeasureSpec.EXACTLY);
+        int childHeightMeasureSpec = MeasureSpec.makeMeasureSpec(mGeometry.getHeight(position),
+                MeasureSpec.EXACTLY);
 
         mPlayer.measure(childWidthMeasureSpec, childHeightMeasureSpec);
     }
 
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        mDragHelper.invalidateHitTestIndex();
         onLayoutLightly();
+        layoutMiniPlayers();
+    }
+
+    /**
+     * 小窗播放器放在各自的格子里，正在拖动或归位的保持当前位置
+     */
+    private void layoutMiniPlayers() {
+        for (int i = 0; i < mMiniPlayers.length; i++) {
+            View miniPlayer = mMiniPlayers[i];
+            int left, top;
+            if (mDragHelper.isViewMoving(miniPlayer)) {
+                left = miniPlayer.getLeft();
+                top = miniPlayer.getTop();
+            } else {
+                left = getMiniPlayerCellLeft(mMiniPlayerCells[i]);
+                top = getMiniPlayerCellTop(mMiniPlayerCells[i]);
+            }
+            miniPlayer.layout(left, top, left + mMiniPlayerWidth, top + mMiniPlayerHeight);
+        }
+    }
+
+    private int getMiniPlayerCellLeft(int cell) {
+        return getPaddingLeft() + cell % MINI_PLAYER_COLUMNS * mMiniPlayerWidth;
+    }
+
+    private int getMiniPlayerCellTop(int cell) {
+        return getPaddingTop() + cell / MINI_PLAYER_COLUMNS * mMiniPlayerHeight;
+    }
+
+    /**
+     * 松手后小窗归位到离中心最近的格子，原来在那个格子里的小窗同时移到空出的格子
+     */
+    private void releaseMiniPlayer(View miniPlayer) {
+        int index = indexOfMiniPlayer(miniPlayer);
+        int centerX = CustomViewDragHelper.getViewLeft(miniPlayer) + mMiniPlayerWidth / 2 - getPaddingLeft();
+        int centerY = CustomViewDragHelper.getViewTop(miniPlayer) + mMiniPlayerHeight / 2 - getPaddingTop();
+        int column = Math.min(Math.max(centerX / mMiniPlayerWidth, 0), MINI_PLAYER_COLUMNS - 1);
+        int row = Math.max(centerY / mMiniPlayerHeight, 0);
+        int cell = Math.min(row * MINI_PLAYER_COLUMNS + column, mMiniPlayers.length - 1);
+
+        int oldCell = mMiniPlayerCells[index];
+        if (cell != oldCell) {
+            for (int i = 0; i < mMiniPlayers.length; i++) {
+                if (mMiniPlayerCells[i] == cell) {
+                    mMiniPlayerCells[i] = oldCell;
+                    mDragHelper.settleViewTo(mMiniPlayers[i],
+                            getMiniPlayerCellLeft(oldCell), getMiniPlayerCellTop(oldCell));
+                    break;
+                }
+            }
+            mMiniPlayerCells[index] = cell;
+        }
+        mDragHelper.settleCapturedViewAt(getMiniPlayerCellLeft(cell), getMiniPlayerCellTop(cell));
+        ViewCompat.postInvalidateOnAnimation(this);
+    }
+
+    private boolean isMiniPlayer(View view) {
+        return view != null && indexOfMiniPlayer(view) >= 0;
+    }
+
+    private int indexOfMiniPlayer(View view) {
+        for (int i = 0; i < mMiniPlayers.length; i++) {
+            if (mMiniPlayers[i] == view)
+                return i;
+        }
+        return -1;
     }
 
     private void onLayoutLightly() {
+        if (mIsTransforming) {
+            layoutForTransform();
+            applyTransform();
+            return;
+        }
+
         if (mDragDirect != HORIZONTAL) {
-            mLeft = this.getWidth() - this.getPaddingRight() - this.getPaddingLeft()
-                    - mPlayer.getMeasuredWidth();
+            mLeft = mGeometry.getLeft(getPlayerPosition());
 
             mDesc.layout(mLeft, mTop + mPlayer.getMeasuredHeight(),
                     mLeft + mDesc.getMeasuredWidth(), mTop + mDesc.getMeasuredHeight());
@@ -488,9 +775,273 @@ public class DragVideoView extends ViewGroup {
     }
 
     private void requestLayoutLightly() {
+        if (mIsTransforming) {
+            applyTransform();//只需要render线程处理的属性变化
+        } else {
+            justMeasurePlayer();
+            onLayoutLightly();
+        }
+        ViewCompat.postInvalidateOnAnimation(this);//进行重绘
+        scheduleDragProgress();
+        updateHitTestIndex();
+
+        if (mMetricsListener != null && mMetrics.isActive() && mPendingEventTime != 0) {
+            mMetrics.onInputLatency(SystemClock.uptimeMillis() - mPendingEventTime);
+        }
+        mPendingEventTime = 0;
+    }
+
+    /**
+     * 当前垂直偏移量在mGeometry中的位置
+     */
+    private int getPlayerPosition() {
+        return mGeometry.positionOf(mVerticalOffset);
+    }
+
+    /**
+     * 播放器当前显示的宽度，变换拖动时包含缩放
+     */
+    private int getPlayerWidth() {
+        return Math.round(mPlayer.getWidth() * mPlayer.getScaleX());
+    }
+
+    /**
+     * 进入变换拖动：播放器按最大化尺寸布局一次，之后每帧只修改变换属性
+     */
+    private void beginTransform() {
+        mIsTransforming = true;
         justMeasurePlayer();
         onLayoutLightly();
-        ViewCompat.postInvalidateOnAnimation(this);//进行重绘
+        updateHitTestIndex();
+    }
+
+    /**
+     * 结束变换拖动：清除变换，按最终位置真正布局一次
+     */
+    private void endTransform() {
+        mIsTransforming = false;
+        resetTransform(mPlayer);
+        resetTransform(mDesc);
+        justMeasurePlayer();
+        onLayoutLightly();
+        updateHitTestIndex();
+    }
+
+    /**
+     * 播放器和mDesc不经过onLayout移动后，同步mDragHelper的点击检测索引
+     */
+    private void updateHitTestIndex() {
+        mDragHelper.updateHitTestIndex(mPlayer);
+        mDragHelper.updateHitTestIndex(mDesc);
+    }
+
+    private static void resetTransform(View view) {
+        view.setScaleX(1f);
+        view.setScaleY(1f);
+        view.setTranslationX(0f);
+        view.setTranslationY(0f);
+    }
+
+    /**
+     * 变换拖动时的基准布局，即最大化时的位置
+     */
+    private void layoutForTransform() {
+        int left = this.getWidth() - this.getPaddingRight() - this.getPaddingLeft()
+                - mPlayer.getMeasuredWidth();
+        mDesc.layout(left, mMinTop + mPlayer.getMeasuredHeight(),
+                left + mDesc.getMeasuredWidth(), mMinTop + mDesc.getMeasuredHeight());
+        mPlayer.layout(left, mMinTop, left + mPlayer.getMeasuredWidth(),
+                mMinTop + mPlayer.getMeasuredHeight());
+    }
+
+    /**
+     * 用缩放和平移把基准布局映射到onLayoutLightly会给出的位置
+     */
+    private void applyTransform() {
+        if (mPlayer.getWidth() == 0)
+            return;
+
+        int position = getPlayerPosition();
+        int width = mGeometry.getWidth(position);
+        int height = mGeometry.getHeight(position);
+        if (mDragDirect != HORIZONTAL) {
+            mLeft = mGeometry.getLeft(position);
+            mDesc.setTranslationX(mLeft - mDesc.getLeft());
+            mDesc.setTranslationY(mTop + height - mDesc.getTop());
+        }
+
+        float scale = (float) width / mPlayer.getWidth();
+        mPlayer.setPivotX(0f);
+        mPlayer.setPivotY(0f);
+        mPlayer.setScaleX(scale);
+        mPlayer.setScaleY(scale);
+        mPlayer.setTranslationX(mLeft - mPlayer.getLeft());
+        mPlayer.setTranslationY(mTop - mPlayer.getTop());
+    }
+
+    /**
+     * 开启或关闭变换拖动，见{@link #mTransformDragEnabled}
+     */
+    public void setTransformDragEnabled(boolean enabled) {
+        mTransformDragEnabled = enabled;
+        if (!enabled && mIsTransforming)
+            endTransform();
+    }
+
+    /**
+     * 开启后同一帧内的多个ACTION_MOVE合并为一次拖动，每帧最多measure/layout一次，
+     * 高采样率屏幕上效果明显；所有历史采样点仍然用于速度计算
+     */
+    public void setInputCoalescingEnabled(boolean enabled) {
+        mDragHelper.setInputCoalescingEnabled(enabled);
+    }
+
+    /**
+     * 开启后播放器按预测的手指位置拖动，减少跟手延迟；靠近拖动边界时自动关闭预测，避免越界
+     */
+    public void setTouchPredictionEnabled(boolean enabled) {
+        mDragHelper.setTouchPredictionHorizon(enabled ? TOUCH_PREDICTION_HORIZON : 0);
+    }
+
+    /**
+     * 拖动/归位过程中把mDesc提升为硬件层，列表只绘制一次，之后每帧只做平移和透明度合成；
+     * 回到STATE_IDLE时释放
+     *
+     * 普通模式下垂直拖动时mDesc的高度每帧都在变，硬件层每帧都要重建反而更慢，
+     * 所以只在mDesc尺寸不变的情况下使用：变换拖动，或者水平拖动（mDesc不重新布局）
+     */
+    private void updateDescLayer(int state) {
+        boolean layered = state != CustomViewDragHelper.STATE_IDLE
+                && (mIsTransforming || mDragDirect == HORIZONTAL)
+                && fitsDescLayerBudget();
+        if (layered == mIsDescLayered)
+            return;
+
+        if (layered) {
+            mDescLayerTypeBefore = ViewCompat.getLayerType(mDesc);
+            ViewCompat.setLayerType(mDesc, ViewCompat.LAYER_TYPE_HARDWARE, null);
+        } else {
+            ViewCompat.setLayerType(mDesc, mDescLayerTypeBefore, null);
+        }
+        mIsDescLayered = layered;
+    }
+
+    /**
+     * 没有硬件加速时硬件层会退化为软件层，同样不使用
+     */
+    private boolean fitsDescLayerBudget() {
+        if (!mDesc.isHardwareAccelerated() || mDesc.getVisibility() != VISIBLE)
+            return false;
+        long bytes = (long) mDesc.getWidth() * mDesc.getHeight() * 4;
+        return bytes > 0 && bytes <= mDescLayerBudget;
+    }
+
+    /**
+     * 设置mDesc硬件层的显存预算，见{@link #mDescLayerBudget}
+     */
+    public void setDescLayerBudget(int bytes) {
+        mDescLayerBudget = bytes;
+        if (mIsDescLayered && !fitsDescLayerBudget())
+            updateDescLayer(CustomViewDragHelper.STATE_IDLE);
+    }
+
+    /**
+     * 同一帧内的多次位置变化合并成下一帧的一次回调，回调时取最新的偏移量
+     */
+    private void scheduleDragProgress() {
+        if (mDragProgressListener == null || mIsDragProgressPending)
+            return;
+        mIsDragProgressPending = true;
+        ViewCompat.postOnAnimation(this, mDispatchDragProgress);
+    }
+
+    /**
+     * 拖动状态变化时结束上一阶段的统计并回调，再开始新阶段的统计
+     */
+    private void dispatchMetrics(int state) {
+        if (mMetricsListener == null) {
+            return;
+        }
+        final long now = System.nanoTime();
+        Choreographer.getInstance().removeFrameCallback(mMetricsFrameCallback);
+        if (mMetrics.isActive()) {
+            mMetrics.end(now);
+            mMetricsListener.onMetrics(mMetrics);
+        }
+        if (state == CustomViewDragHelper.STATE_DRAGGING) {
+            mMetrics.begin(DragMetrics.PHASE_DRAG, now);
+        } else if (state == CustomViewDragHelper.STATE_SETTLING) {
+            mMetrics.begin(DragMetrics.PHASE_SETTLE, now);
+            mMetrics.setPlannedSettleDuration(mDragHelper.getSettleDuration());
+        }
+        if (mMetrics.isActive())
+            Choreographer.getInstance().postFrameCallback(mMetricsFrameCallback);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        Display display = ((WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE))
+                .getDefaultDisplay();
+        float refreshRate = display.getRefreshRate();
+        if (refreshRate > 0)
+            mMetrics.setFrameIntervalNanos((long) (1000000000L / refreshRate));
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(mDispatchDragProgress);
+        mIsDragProgressPending = false;
+        Choreographer.getInstance().removeFrameCallback(mMetricsFrameCallback);
+    }
+
+    /**
+     * 设置帧统计回调，传入null关闭统计
+     */
+    public void setMetricsListener(MetricsListener listener) {
+        mMetricsListener = listener;
+    }
+
+    /**
+     * 设置拖动进度回调，设置后会先回调一次当前进度
+     */
+    public void setDragProgressListener(DragProgressListener listener) {
+        mDragProgressListener = listener;
+        scheduleDragProgress();
+    }
+
+    /**
+     * 设置播放器拖动状态回调，回调时isMinimum()已是本次拖动或归位的结果
+     */
+    public void setDragStateListener(DragStateListener listener) {
+        mDragStateListener = listener;
+    }
+
+    /**
+     * 记录本组件收到的所有触摸事件，传入null停止记录
+     */
+    public void setTouchRecorder(TouchRecorder recorder) {
+        mTouchRecorder = recorder;
+    }
+
+    /**
+     * 以下状态供回放测试检查
+     */
+    float getVerticalOffset() {
+        return mVerticalOffset;
+    }
+
+    float getHorizontalOffset() {
+        return mHorizontalOffset;
+    }
+
+    boolean isMinimum() {
+        return mIsMinimum;
+    }
+
+    int getViewDragState() {
+        return mDragHelper.getViewDragState();
     }
 
     public void setCallback(Callback callback) {
@@ -500,4 +1051,27 @@ public class DragVideoView extends ViewGroup {
     public interface Callback {
         void onDisappear(int direct);
     }
+
+    public interface MetricsListener {
+        /**
+         * 每次拖动或归位结束时回调，metrics对象会被复用，不要持有它
+         */
+        void onMetrics(DragMetrics metrics);
+    }
+
+    public interface DragStateListener {
+        /**
+         * @param state CustomViewDragHelper.STATE_IDLE、STATE_DRAGGING或STATE_SETTLING
+         */
+        void onDragStateChanged(int state);
+    }
+
+    public interface DragProgressListener {
+        /**
+         * @param verticalOffset   垂直方向偏移量，0为最大化，1为最小化
+         * @param horizontalOffset 最小化后水平方向偏移量，0为从左侧消失，1为从右侧消失，
+         *                         原位时为1 / (1 + PLAYER_RATIO)
+         */
+        void onDragProgress(float verticalOffset, float horizontalOffset);
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import android.graphics.Matrix;
+import android.graphics.SurfaceTexture;
+import android.view.TextureView;
+
+/**
+ * 把TextureView的buffer固定为视频原始尺寸
+ *
+ * <p>TextureView resets the default buffer size of its SurfaceTexture to the view size
+ * whenever the view is resized, so while the player is dragged between full width and
+ * {@code PLAYER_RATIO} the buffer keeps being reallocated. This class pins the buffer to
+ * the native video size after every resize and lets the on-screen size come from
+ * {@link TextureView#setTransform(Matrix)} instead, letterboxing when the aspect ratios
+ * differ.</p>
+ */
+public class FixedVideoBuffer {
+    private final TextureView mTextureView;
+    private final Matrix mMatrix = new Matrix();
+    private final float[] mFit = new float[4];
+
+    private boolean mEnabled = true;
+    private int mVideoWidth;
+    private int mVideoHeight;
+
+    public FixedVideoBuffer(TextureView textureView) {
+        mTextureView = textureView;
+    }
+
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * 视频尺寸已知或改变时调用，一般来自MediaPlayer.OnVideoSizeChangedListener
+     */
+    public void setVideoSize(int width, int height) {
+        mVideoWidth = width;
+        mVideoHeight = height;
+        SurfaceTexture surface = mTextureView.getSurfaceTexture();
+        if (surface != null)
+            apply(surface, mTextureView.getWidth(), mTextureView.getHeight());
+    }
+
+    /**
+     * 在onSurfaceTextureAvailable和onSurfaceTextureSizeChanged中调用
+     */
+    public void apply(SurfaceTexture surface, int viewWidth, int viewHeight) {
+        if (!mEnabled || mVideoWidth <= 0 || mVideoHeight <= 0)
+            return;
+
+        surface.setDefaultBufferSize(mVideoWidth, mVideoHeight);
+
+        computeFit(mVideoWidth, mVideoHeight, viewWidth, viewHeight, mFit);
+        mMatrix.setScale(mFit[0], mFit[1]);
+        mMatrix.postTranslate(mFit[2], mFit[3]);
+        mTextureView.setTransform(mMatrix);
+    }
+
+    /**
+     * Compute the transform that fits a video into a view keeping its aspect ratio.
+     * TextureView already stretches the buffer to the view bounds, so the scale is
+     * relative to the view size.
+     *
+     * @param out receives scaleX, scaleY, translateX, translateY
+     */
+    static void computeFit(int videoWidth, int videoHeight, int viewWidth, int viewHeight,
+                           float[] out) {
+        if (videoWidth <= 0 || videoHeight <= 0 || viewWidth <= 0 || viewHeight <= 0) {
+            out[0] = 1f;
+            out[1] = 1f;
+            out[2] = 0f;
+            out[3] = 0f;
+            return;
+        }
+        final float fittedWidth = Math.min(viewWidth, (float) viewHeight * videoWidth / videoHeight);
+        final float fittedHeight = Math.min(viewHeight, (float) viewWidth * videoHeight / videoWidth);
+        out[0] = fittedWidth / viewWidth;
+        out[1] = fittedHeight / viewHeight;
+        out[2] = (viewWidth - fittedWidth) / 2f;
+        out[3] = (viewHeight - fittedHeight) / 2f;
+    }
+}
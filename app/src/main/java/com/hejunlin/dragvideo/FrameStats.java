@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import java.io.PrintWriter;
+
+/**
+ * Statistics of the video frames reaching the screen, split by the drag state of
+ * {@link DragVideoView}.
+ *
+ * <p>{@link #onFrameUpdated(long)} is called for every onSurfaceTextureUpdated. The gap
+ * to the previous update goes into a histogram of the current state, and gaps longer
+ * than one content frame count as lost frames. While a drag or settle runs, the UI
+ * frames reported to {@link #onUiFrame(long)} tell who lost them: if the UI thread
+ * kept drawing at least once per content frame, the decoder did not deliver (a decoder
+ * stall); otherwise the UI thread was too busy to show the frame (a UI stall). Frames
+ * lost while idle are not attributed, since no UI frames are tracked then.</p>
+ *
+ * <p>All counters are preallocated primitives, so recording does not allocate. Not
+ * thread safe; use it from the main thread.</p>
+ */
+public class FrameStats {
+    /**
+     * States are indexed by CustomViewDragHelper.STATE_IDLE, STATE_DRAGGING and
+     * STATE_SETTLING
+     */
+    public static final int STATE_COUNT = 3;
+
+    /**
+     * Exclusive upper bounds of the gap histogram buckets; the last bucket is unbounded
+     */
+    private static final int[] BUCKET_LIMITS_MILLIS = {10, 20, 30, 40, 50, 70, 100, 150, 250, 500};
+    public static final int BUCKET_COUNT = BUCKET_LIMITS_MILLIS.length + 1;
+
+    /**
+     * MediaPlayer does not report the frame rate, assume 30fps content by default
+     */
+    private static final long DEFAULT_CONTENT_FRAME_INTERVAL_NANOS = 1000000000L / 30;
+
+    private long mContentFrameIntervalNanos = DEFAULT_CONTENT_FRAME_INTERVAL_NANOS;
+
+    private boolean mActive;
+    private int mState = CustomViewDragHelper.STATE_IDLE;
+    private long mLastTickNanos;
+    private boolean mHasLastUpdate;
+    private long mLastUpdateNanos;
+
+    // UI frames since the last update, only tracked while dragging or settling
+    private boolean mHasLastUiFrame;
+    private long mLastUiFrameNanos;
+    private long mWorstUiIntervalNanos;
+
+    private final int[][] mGapHistograms = new int[STATE_COUNT][BUCKET_COUNT];
+    private final int[] mFrameCounts = new int[STATE_COUNT];
+    private final long[] mDurationNanos = new long[STATE_COUNT];
+    private final long[] mWorstGapNanos = new long[STATE_COUNT];
+    private final int[] mLostFrames = new int[STATE_COUNT];
+    private final int[] mDecoderStalls = new int[STATE_COUNT];
+    private final int[] mUiStalls = new int[STATE_COUNT];
+
+    /**
+     * @param intervalNanos Interval between two frames of the video content
+     */
+    public void setContentFrameIntervalNanos(long intervalNanos) {
+        if (intervalNanos > 0) {
+            mContentFrameIntervalNanos = intervalNanos;
+        }
+    }
+
+    /**
+     * Start counting, e.g. when playback is shown. The first update after this has no gap.
+     */
+    public void start(long nowNanos) {
+        if (mActive) {
+            return;
+        }
+        mActive = true;
+        mLastTickNanos = nowNanos;
+        mHasLastUpdate = false;
+        resetUiFrames();
+    }
+
+    /**
+     * Stop counting, e.g. when playback is hidden or paused.
+     */
+    public void stop(long nowNanos) {
+        if (!mActive) {
+            return;
+        }
+        tick(nowNanos);
+        mActive = false;
+    }
+
+    public boolean isActive() {
+        return mActive;
+    }
+
+    /**
+     * @param state CustomViewDragHelper.STATE_IDLE, STATE_DRAGGING or STATE_SETTLING
+     */
+    public void setState(int state, long nowNanos) {
+        if (state == mState) {
+            return;
+        }
+        if (mActive) {
+            tick(nowNanos);
+        }
+        mState = state;
+        resetUiFrames();
+    }
+
+    /**
+     * @return true if UI frames should be reported in the current state
+     */
+    public boolean isTrackingUiFrames() {
+        return mActive && mState != CustomViewDragHelper.STATE_IDLE;
+    }
+
+    /**
+     * Record a UI frame, e.g. from a Choreographer.FrameCallback.
+     */
+    public void onUiFrame(long frameTimeNanos) {
+        if (!isTrackingUiFrames()) {
+            return;
+        }
+        if (mHasLastUiFrame) {
+            final long interval = frameTimeNanos - mLastUiFrameNanos;
+            if (interval > mWorstUiIntervalNanos) {
+                mWorstUiIntervalNanos = interval;
+            }
+        }
+        mLastUiFrameNanos = frameTimeNanos;
+        mHasLastUiFrame = true;
+    }
+
+    /**
+     * Record a new video frame on screen.
+     */
+    public void onFrameUpdated(long nowNanos) {
+        if (!mActive) {
+            return;
+        }
+        tick(nowNanos);
+        final int state = mState;
+        mFrameCounts[state]++;
+        if (mHasLastUpdate) {
+            final long gap = nowNanos - mLastUpdateNanos;
+            mGapHistograms[state][bucketOf(gap)]++;
+            if (gap > mWorstGapNanos[state]) {
+                mWorstGapNanos[state] = gap;
+            }
+            // A gap spanning n content frames means n - 1 frames were lost
+            final long lost = (gap + mContentFrameIntervalNanos / 2) / mContentFrameIntervalNanos - 1;
+            if (lost > 0) {
+                mLostFrames[state] += lost;
+                if (mHasLastUiFrame) {
+                    final long uiInterval = Math.max(mWorstUiIntervalNanos, nowNanos - mLastUiFrameNanos);
+                    if (uiInterval > mContentFrameIntervalNanos) {
+                        mUiStalls[state]++;
+                    } else {
+                        mDecoderStalls[state]++;
+                    }
+                }
+            }
+        }
+        mLastUpdateNanos = nowNanos;
+        mHasLastUpdate = true;
+        mWorstUiIntervalNanos = 0;
+    }
+
+    private void tick(long nowNanos) {
+        mDurationNanos[mState] += nowNanos - mLastTickNanos;
+        mLastTickNanos = nowNanos;
+    }
+
+    private void resetUiFrames() {
+        mHasLastUiFrame = false;
+        mWorstUiIntervalNanos = 0;
+    }
+
+    private static int bucketOf(long gapNanos) {
+        final long millis = gapNanos / 1000000;
+        for (int i = 0; i < BUCKET_LIMITS_MILLIS.length; i++) {
+            if (millis < BUCKET_LIMITS_MILLIS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_LIMITS_MILLIS.length;
+    }
+
+    /**
+     * Clear every counter, keeping the active flag and the current state.
+     */
+    public void reset(long nowNanos) {
+        for (int state = 0; state < STATE_COUNT; state++) {
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                mGapHistograms[state][bucket] = 0;
+            }
+            mFrameCounts[state] = 0;
+            mDurationNanos[state] = 0;
+            mWorstGapNanos[state] = 0;
+            mLostFrames[state] = 0;
+            mDecoderStalls[state] = 0;
+            mUiStalls[state] = 0;
+        }
+        mLastTickNanos = nowNanos;
+        mHasLastUpdate = false;
+        resetUiFrames();
+    }
+
+    public int getFrameCount(int state) {
+        return mFrameCounts[state];
+    }
+
+    /**
+     * @return time spent counting in the state, up to the last update or state change
+     */
+    public long getDurationNanos(int state) {
+        return mDurationNanos[state];
+    }
+
+    /**
+     * @return rendered video frames per second in the state
+     */
+    public float getFps(int state) {
+        return mDurationNanos[state] > 0 ? mFrameCounts[state] * 1e9f / mDurationNanos[state] : 0f;
+    }
+
+    public float getWorstGapMillis(int state) {
+        return mWorstGapNanos[state] / 1000000f;
+    }
+
+    public int getLostFrames(int state) {
+        return mLostFrames[state];
+    }
+
+    /**
+     * @return gaps with lost frames while the UI thread kept drawing
+     */
+    public int getDecoderStalls(int state) {
+        return mDecoderStalls[state];
+    }
+
+    /**
+     * @return gaps with lost frames while the UI thread missed a content frame
+     */
+    public int getUiStalls(int state) {
+        return mUiStalls[state];
+    }
+
+    public int getGapCount(int state, int bucket) {
+        return mGapHistograms[state][bucket];
+    }
+
+    /**
+     * @return exclusive upper bound of the bucket, or Integer.MAX_VALUE for the last one
+     */
+    public static int getBucketLimitMillis(int bucket) {
+        return bucket < BUCKET_LIMITS_MILLIS.length ? BUCKET_LIMITS_MILLIS[bucket] : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Write the statistics of every state, one state per line followed by its histogram.
+     */
+    public void dump(String prefix, PrintWriter writer) {
+        writer.print(prefix);
+        writer.println("FrameStats");
+        for (int state = 0; state < STATE_COUNT; state++) {
+            writer.print(prefix);
+            writer.print("  ");
+            writer.print(stateName(state));
+            writer.print(": frames=");
+            writer.print(mFrameCounts[state]);
+            writer.print(" fps=");
+            writer.print(getFps(state));
+            writer.print(" worstGap=");
+            writer.print(getWorstGapMillis(state));
+            writer.print("ms lost=");
+            writer.print(mLostFrames[state]);
+            writer.print(" decoderStalls=");
+            writer.print(mDecoderStalls[state]);
+            writer.print(" uiStalls=");
+            writer.println(mUiStalls[state]);
+            writer.print(prefix);
+            writer.print("    gaps");
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                writer.print(bucket < BUCKET_LIMITS_MILLIS.length ? " <" : " >=");
+                writer.print(bucket < BUCKET_LIMITS_MILLIS.length
+                        ? BUCKET_LIMITS_MILLIS[bucket] : BUCKET_LIMITS_MILLIS[bucket - 1]);
+                writer.print(':');
+                writer.print(mGapHistograms[state][bucket]);
+            }
+            writer.println();
+        }
+    }
+
+    private static String stateName(int state) {
+        switch (state) {
+            case CustomViewDragHelper.STATE_IDLE:
+                return "idle";
+            case CustomViewDragHelper.STATE_DRAGGING:
+                return "dragging";
+            case CustomViewDragHelper.STATE_SETTLING:
+                return "settling";
+            default:
+                return String.valueOf(state);
+        }
+    }
+}
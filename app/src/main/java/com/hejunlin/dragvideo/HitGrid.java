@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the parent view used by {@link CustomViewDragHelper} to find the
+ * children under a point without testing every child.
+ *
+ * <p>Items are identified by their drawing rank, higher ranks being drawn on top. Each
+ * cell keeps a bit set of the items whose bounds overlap it, so a query only looks at
+ * the items in one cell, topmost first, and moving an item only touches the cells it
+ * leaves and enters. Bounds are integer rectangles that may be larger than the exact
+ * hit area; callers confirm each candidate with an exact test.</p>
+ */
+final class HitGrid {
+    /**
+     * Number of cells along each axis.
+     */
+    static final int CELLS_PER_AXIS = 8;
+
+    private int mWidth;
+    private int mHeight;
+    private int mCellWidth = 1;
+    private int mCellHeight = 1;
+    private int mItemCount;
+    private int mWords;
+
+    // CELLS_PER_AXIS^2 cells of mWords longs each
+    private long[] mBits = new long[0];
+
+    private int[] mLeft = new int[0];
+    private int[] mTop = new int[0];
+    private int[] mRight = new int[0];
+    private int[] mBottom = new int[0];
+
+    /**
+     * Remove every item and resize the grid.
+     *
+     * @param width Width of the area covered by the cells
+     * @param height Height of the area covered by the cells
+     * @param itemCount Number of items, ranks run from 0 to itemCount - 1
+     */
+    void reset(int width, int height, int itemCount) {
+        mWidth = Math.max(width, 1);
+        mHeight = Math.max(height, 1);
+        mCellWidth = (mWidth + CELLS_PER_AXIS - 1) / CELLS_PER_AXIS;
+        mCellHeight = (mHeight + CELLS_PER_AXIS - 1) / CELLS_PER_AXIS;
+        mItemCount = itemCount;
+        mWords = (itemCount + 63) / 64;
+
+        final int bits = CELLS_PER_AXIS * CELLS_PER_AXIS * mWords;
+        if (mBits.length < bits) {
+            mBits = new long[bits];
+        } else {
+            Arrays.fill(mBits, 0L);
+        }
+        if (mLeft.length < itemCount) {
+            mLeft = new int[itemCount];
+            mTop = new int[itemCount];
+            mRight = new int[itemCount];
+            mBottom = new int[itemCount];
+        }
+        for (int i = 0; i < itemCount; i++) {
+            mLeft[i] = mTop[i] = mRight[i] = mBottom[i] = 0;
+        }
+    }
+
+    int getItemCount() {
+        return mItemCount;
+    }
+
+    int getWidth() {
+        return mWidth;
+    }
+
+    int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * Move an item to new bounds. An empty rectangle removes it from every cell.
+     */
+    void set(int item, int left, int top, int right, int bottom) {
+        if (mLeft[item] == left && mTop[item] == top
+                && mRight[item] == right && mBottom[item] == bottom) {
+            return;
+        }
+        mark(item, false);
+        mLeft[item] = left;
+        mTop[item] = top;
+        mRight[item] = right;
+        mBottom[item] = bottom;
+        mark(item, true);
+    }
+
+    /**
+     * Find the topmost item below a given rank whose bounds contain the point.
+     * Start with <code>below == getItemCount()</code> and pass the previous result to
+     * walk down through every candidate.
+     *
+     * @return the rank of the item, or -1 if there is none
+     */
+    int findTopItemAt(int x, int y, int below) {
+        if (x < 0 || y < 0 || x >= mWidth || y >= mHeight) {
+            // Items may stick out of the grid; outside it there is no cell to look in.
+            for (int item = below - 1; item >= 0; item--) {
+                if (contains(item, x, y)) {
+                    return item;
+                }
+            }
+            return -1;
+        }
+
+        final int base = cellIndex(x / mCellWidth, y / mCellHeight) * mWords;
+        int word = (below - 1) >> 6;
+        // Bits of the first word at or above 'below' are masked out.
+        long mask = (below & 63) == 0 ? -1L : (1L << (below & 63)) - 1;
+        for (; word >= 0; word--, mask = -1L) {
+            long bits = mBits[base + word] & mask;
+            while (bits != 0) {
+                final int bit = 63 - Long.numberOfLeadingZeros(bits);
+                final int item = (word << 6) + bit;
+                if (contains(item, x, y)) {
+                    return item;
+                }
+                bits &= ~(1L << bit);
+            }
+        }
+        return -1;
+    }
+
+    private boolean contains(int item, int x, int y) {
+        return x >= mLeft[item] && x < mRight[item] && y >= mTop[item] && y < mBottom[item];
+    }
+
+    private void mark(int item, boolean set) {
+        if (mRight[item] <= mLeft[item] || mBottom[item] <= mTop[item]
+                || mRight[item] <= 0 || mBottom[item] <= 0
+                || mLeft[item] >= mWidth || mTop[item] >= mHeight) {
+            return;
+        }
+        final int firstColumn = Math.max(mLeft[item], 0) / mCellWidth;
+        final int lastColumn = Math.min(mRight[item] - 1, mWidth - 1) / mCellWidth;
+        final int firstRow = Math.max(mTop[item], 0) / mCellHeight;
+        final int lastRow = Math.min(mBottom[item] - 1, mHeight - 1) / mCellHeight;
+        final int word = item >> 6;
+        final long bit = 1L << (item & 63);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                final int index = cellIndex(column, row) * mWords + word;
+                if (set) {
+                    mBits[index] |= bit;
+                } else {
+                    mBits[index] &= ~bit;
+                }
+            }
+        }
+    }
+
+    private static int cellIndex(int column, int row) {
+        return row * CELLS_PER_AXIS + column;
+    }
+}
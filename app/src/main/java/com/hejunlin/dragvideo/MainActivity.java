@@ -17,29 +17,81 @@
  */
 package com.hejunlin.dragvideo;
 
+import android.content.Context;
 import android.graphics.SurfaceTexture;
-import android.media.MediaPlayer;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
-import android.view.Surface;
+import android.view.Choreographer;
+import android.view.MotionEvent;
 import android.view.TextureView;
 import android.view.View;
+import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.ListView;
 
-public class MainActivity extends AppCompatActivity implements DragVideoView.Callback, MediaPlayer.OnPreparedListener, TextureView.SurfaceTextureListener {
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
+public class MainActivity extends AppCompatActivity implements DragVideoView.Callback, PlayerPipeline.Listener,
+        TextureView.SurfaceTextureListener, DragVideoView.DragProgressListener, DragVideoView.DragStateListener {
 
     private static final String TAG = MainActivity.class.getSimpleName();
+
+    /**
+     * 所有准备好的播放器的预算：最多同时占用的解码器个数和估算内存，
+     * 包括正在播放的和正在准备的其他版本，预热池只能使用剩下的部分
+     */
+    private static final int MAX_PREPARED_PLAYERS = 2;
+    private static final long MAX_PREPARED_BYTES = 48L * 1024 * 1024;
+
+    /**
+     * 节目列表停止滚动超过这个时间后，预热第一个可见的节目
+     */
+    private static final int DWELL_MILLIS = 500;
+
+    /**
+     * 启动和起播各阶段的时间，整个进程共用一份，冷启动只记录第一次onCreate
+     */
+    private static final StartupTrace sStartupTrace = new StartupTrace();
+
     private TextureView mVideoView;
-    private MediaPlayer mMediaPlayer;
+    private RetainedPlayback mPlayback;
+    private PrewarmPool<PlayerPipeline> mPlayerPool;
+
+    /**
+     * 按下时预热的节目，手势变成滚动时取消，-1表示没有
+     */
+    private int mTouchWarmedProgram = -1;
     private DragVideoView mDragVideoView;
     private ListView mDetailInfoListView;
     private ListView mProgramListView;
+    private FixedVideoBuffer mFixedVideoBuffer;
+
+    /**
+     * 视频帧统计，按DragVideoView的拖动状态分开
+     */
+    private final FrameStats mFrameStats = new FrameStats();
+    private boolean mIsUiFrameCallbackPosted;
+
+    /**
+     * 拖动和归位期间记录UI帧，用来区分解码卡顿和UI线程卡顿
+     */
+    private final Choreographer.FrameCallback mUiFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mFrameStats.onUiFrame(frameTimeNanos);
+            mIsUiFrameCallbackPosted = mFrameStats.isTrackingUiFrames();
+            if (mIsUiFrameCallbackPosted)
+                Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        sStartupTrace.mark(StartupTrace.MARK_CREATE_BEGIN, SystemClock.uptimeMillis());
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
         mProgramListView = (ListView) findViewById(R.id.lv_program);
@@ -47,78 +99,316 @@ public class MainActivity extends AppCompatActivity implements DragVideoView.Cal
         mProgramListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
             @Override
             public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+                sStartupTrace.beginSession(SystemClock.uptimeMillis());
+                mTouchWarmedProgram = -1;
                 mProgramListView.setVisibility(View.GONE);
-                playVideo();
+                playVideo(position);
+            }
+        });
+        mProgramListView.setOnTouchListener(new View.OnTouchListener() {
+            @Override
+            public boolean onTouch(View v, MotionEvent event) {
+                if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {//按下时就开始准备，不等点击确认
+                    int position = mProgramListView.pointToPosition((int) event.getX(), (int) event.getY());
+                    mTouchWarmedProgram = position != AdapterView.INVALID_POSITION
+                            && position != mPlayback.getProgram() && mPlayerPool.warm(position) ? position : -1;
+                }
+                return false;
+            }
+        });
+        mProgramListView.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+                mProgramListView.removeCallbacks(mDwellWarm);
+                if (scrollState == SCROLL_STATE_TOUCH_SCROLL && mTouchWarmedProgram >= 0) {//不是点击，取消预热
+                    mPlayerPool.cancel(mTouchWarmedProgram);
+                    mTouchWarmedProgram = -1;
+                } else if (scrollState == SCROLL_STATE_IDLE) {
+                    mProgramListView.postDelayed(mDwellWarm, DWELL_MILLIS);
+                }
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
             }
         });
         mVideoView = (TextureView) findViewById(R.id.video_view);
         mVideoView.setSurfaceTextureListener(this);
-        mMediaPlayer = MediaPlayer.create(this,R.raw.test_4);
-        mMediaPlayer.setOnPreparedListener(this);
+        mVideoView.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
+            @Override
+            public void onViewAttachedToWindow(View v) {
+                reattachSurfaceTexture();
+            }
+
+            @Override
+            public void onViewDetachedFromWindow(View v) {
+            }
+        });
+        mPlayback = (RetainedPlayback) getLastCustomNonConfigurationInstance();
+        if (mPlayback == null) {//屏幕旋转等重建时沿用上一个Activity的播放器
+            ProgramPlayerFactory factory = new ProgramPlayerFactory(this);
+            mPlayback = new RetainedPlayback(new PrewarmPool<>(factory, MAX_PREPARED_PLAYERS, MAX_PREPARED_BYTES),
+                    factory);
+        }
+        mPlayerPool = mPlayback.getPool();
+        mFixedVideoBuffer = new FixedVideoBuffer(mVideoView);
+        mPlayback.setListener(this);
+        PlayerPipeline pipeline = mPlayback.getPipeline();
+        if (pipeline != null) {
+            mFixedVideoBuffer.setVideoSize(pipeline.getVideoWidth(), pipeline.getVideoHeight());
+        }
         mDragVideoView = (DragVideoView) findViewById(R.id.drag_view);
         mDragVideoView.setCallback(this);
+        mDragVideoView.setDragProgressListener(this);
+        mDragVideoView.setDragStateListener(this);
         mDetailInfoListView = (ListView) findViewById(R.id.lv_info);
         mDetailInfoListView.setAdapter(ArrayAdapter.createFromResource(this, R.array.info_list, android.R.layout.simple_list_item_1));
+
+        if (mPlayback.isShowing()) {
+            mProgramListView.setVisibility(View.GONE);
+            mDragVideoView.post(new Runnable() {//等第一次布局完成后再显示
+                @Override
+                public void run() {
+                    mDragVideoView.show();
+                    mFrameStats.start(System.nanoTime());
+                }
+            });
+        } else {
+            mProgramListView.postDelayed(mDwellWarm, DWELL_MILLIS);
+        }
+        sStartupTrace.mark(StartupTrace.MARK_CREATE_END, SystemClock.uptimeMillis());
+    }
+
+    /**
+     * @return 启动和起播各阶段的时间，只在主线程访问
+     */
+    public static StartupTrace getStartupTrace() {
+        return sStartupTrace;
     }
 
-    private void playVideo() {
+    /**
+     * @return 视频帧统计，只在主线程访问
+     */
+    public FrameStats getFrameStats() {
+        return mFrameStats;
+    }
+
+    /**
+     * adb shell dumpsys activity com.hejunlin.dragvideo 输出起播各阶段的时间、视频帧统计和拖拽跟踪记录
+     */
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        sStartupTrace.dump(prefix, writer);
+        mFrameStats.dump(prefix, writer);
+        if (DragTrace.ENABLED)
+            DragTrace.dump(prefix, writer);
+    }
+
+    /**
+     * 节目列表停留一段时间后，预热第一个可见的节目
+     */
+    private final Runnable mDwellWarm = new Runnable() {
+        @Override
+        public void run() {
+            int position = mProgramListView.getFirstVisiblePosition();
+            if (mProgramListView.getVisibility() == View.VISIBLE && position != AdapterView.INVALID_POSITION
+                    && position != mPlayback.getProgram())
+                mPlayerPool.warm(position);
+        }
+    };
+
+    /**
+     * 把保留的SurfaceTexture接回TextureView，这种情况下不会回调onSurfaceTextureAvailable
+     */
+    private void reattachSurfaceTexture() {
+        final SurfaceTexture surface = mPlayback.getDetachedSurfaceTexture();
+        if (surface == null)
+            return;
+        mVideoView.setSurfaceTexture(surface);
+        mPlayback.attachSurfaceTexture(surface);
+        mVideoView.post(new Runnable() {//TextureView绘制时会把buffer重置为view尺寸，绘制后重新固定
+            @Override
+            public void run() {
+                if (mVideoView.getSurfaceTexture() == surface)
+                    mFixedVideoBuffer.apply(surface, mVideoView.getWidth(), mVideoView.getHeight());
+            }
+        });
+    }
+
+    @Override
+    public Object onRetainCustomNonConfigurationInstance() {
+        return mPlayback;
+    }
+
+    private void playVideo(int program) {
+        PlayerPipeline pipeline = mPlayback.switchTo(program);//预热过的节目可以立即播放
+        markStage(pipeline, PlayerPipeline.STAGE_CREATE);//预热的播放器已经准备过，不会再回调
+        markStage(pipeline, PlayerPipeline.STAGE_PREPARE);
+        mFixedVideoBuffer.setVideoSize(pipeline.getVideoWidth(), pipeline.getVideoHeight());
+        mPlayback.setShowing(true);
+        sStartupTrace.mark(StartupTrace.MARK_SHOW, SystemClock.uptimeMillis());
         mDragVideoView.show();
-        if (mMediaPlayer.isPlaying())
+        mFrameStats.start(System.nanoTime());
+        sStartupTrace.mark(StartupTrace.MARK_START_REQUEST, SystemClock.uptimeMillis());
+        pipeline.start();//未准备好时排队，准备完成后开始播放
+    }
+
+    /**
+     * 把播放器某个阶段的开始和结束时间记入sStartupTrace
+     */
+    private void markStage(PlayerPipeline pipeline, int stage) {
+        long end = pipeline.getStageEndTime(stage);
+        if (end < 0)
             return;
-        try {
-            mMediaPlayer.prepare();
-        } catch (Exception e) {
-            e.printStackTrace();
+        long begin = end - pipeline.getStageDuration(stage);
+        switch (stage) {
+            case PlayerPipeline.STAGE_CREATE:
+                sStartupTrace.mark(StartupTrace.MARK_PLAYER_CREATE, begin);
+                break;
+            case PlayerPipeline.STAGE_PREPARE:
+                sStartupTrace.mark(StartupTrace.MARK_PREPARE_BEGIN, begin);
+                sStartupTrace.mark(StartupTrace.MARK_PREPARE_END, end);
+                break;
+            case PlayerPipeline.STAGE_START:
+                sStartupTrace.mark(StartupTrace.MARK_START, end);
+                break;
+            default:
+                break;
         }
-        mMediaPlayer.start();
+    }
+
+    /**
+     * 记录首帧或最大化归位，两者都完成时debug包输出本次起播的耗时，release包只能通过dump查看
+     */
+    private void markPlaybackReady(int mark) {
+        if (sStartupTrace.mark(mark, SystemClock.uptimeMillis()) && sStartupTrace.isComplete()
+                && BuildConfig.DEBUG)
+            Log.d(TAG, "time to first frame " + sStartupTrace.getTimeToFirstFrame() + "ms, settled in "
+                    + sStartupTrace.getElapsed(StartupTrace.MARK_SETTLED) + "ms");
     }
 
     @Override
     public void onDisappear(int direct) {
-        mMediaPlayer.pause();
+        mPlayback.getPipeline().pause();
+        mPlayback.setShowing(false);
+        mFrameStats.stop(System.nanoTime());
         mProgramListView.setVisibility(View.VISIBLE);
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (mMediaPlayer.isPlaying()) {
-            mMediaPlayer.stop();
+        mProgramListView.removeCallbacks(mDwellWarm);
+        Choreographer.getInstance().removeFrameCallback(mUiFrameCallback);
+        if (isChangingConfigurations()) {//播放器交给下一个Activity，不再回调这里
+            mPlayback.setListener(null);
+            return;
         }
-        mMediaPlayer.release();
+        mPlayback.release();
+    }
+
+    @Override
+    public void onVideoSizeChanged(int width, int height) {
+        mFixedVideoBuffer.setVideoSize(width, height);
+    }
+
+    @Override
+    public void onStageFinished(int stage, long durationMillis) {
+        markStage(mPlayback.getPipeline(), stage);//各阶段耗时通过dump中的StartupTrace查看
     }
 
     @Override
-    public void onPrepared(MediaPlayer mp) {
-        mMediaPlayer.setLooping(true);
+    public void onError(int what, int extra) {
+        Log.w(TAG, "player pipeline error " + what + ", " + extra);
     }
 
     @Override
     public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
-        mMediaPlayer.setSurface(new Surface(surface));
+        mFixedVideoBuffer.apply(surface, width, height);
+        mPlayback.attachSurfaceTexture(surface);
     }
 
     @Override
     public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height) {
-        Log.d(TAG, ">> onSurfaceTextureSizeChanged width=" + width + ", height=" + height);
-        if (width == 540 && height == 303) {
-            mProgramListView.setAlpha(1.0f);
-        } else {
-            float f = (float) ((1.0 - ((float)width/1080))* 1.0f);
-            Log.d(TAG, ">> onSurfaceTextureSizeChanged f=" + f );
-            mProgramListView.setAlpha(f);
-        }
+        if (DragTrace.ENABLED)
+            DragTrace.record(DragTrace.EVENT_SURFACE_SIZE_CHANGED, width, height);
+        mFixedVideoBuffer.apply(surface, width, height);//TextureView会把buffer重置为view尺寸，重新固定
+    }
+
+    @Override
+    public void onDragProgress(float verticalOffset, float horizontalOffset) {
+        mProgramListView.setAlpha(verticalOffset);//播放器越小，节目列表越清晰
         mProgramListView.setVisibility(View.VISIBLE);
     }
 
+    @Override
+    public void onDragStateChanged(int state) {
+        mFrameStats.setState(state, System.nanoTime());
+        if (mFrameStats.isTrackingUiFrames() && !mIsUiFrameCallbackPosted) {
+            mIsUiFrameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(mUiFrameCallback);
+        }
+        if (state != CustomViewDragHelper.STATE_IDLE)
+            return;
+        if (!mDragVideoView.isMinimum())
+            markPlaybackReady(StartupTrace.MARK_SETTLED);
+        if (mPlayback.isShowing())//最小化时只占PLAYER_RATIO的宽度，换成低分辨率版本
+            mPlayback.requestRendition(mDragVideoView.isMinimum()
+                    ? RetainedPlayback.RENDITION_LOW : RetainedPlayback.RENDITION_FULL);
+    }
+
     @Override
     public boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
-        finish();
-        return true;
+        //保留SurfaceTexture，TextureView重新attach或Activity重建后接回，播放器不需要重新配置解码器
+        return !mPlayback.detachSurfaceTexture();
     }
 
     @Override
     public void onSurfaceTextureUpdated(SurfaceTexture surface) {
+        mFrameStats.onFrameUpdated(System.nanoTime());
+        markPlaybackReady(StartupTrace.MARK_FIRST_FRAME);
+    }
+
+    /**
+     * 为节目创建播放器，只持有ApplicationContext，可以跨Activity保留
+     * 演示工程中所有节目都播放同一个视频，也没有低分辨率版本
+     */
+    private static class ProgramPlayerFactory implements PrewarmPool.Factory<PlayerPipeline>,
+            RetainedPlayback.RenditionFactory {
+        private final Context mContext;
+
+        ProgramPlayerFactory(Context context) {
+            mContext = context.getApplicationContext();
+        }
+
+        @Override
+        public PlayerPipeline create(int program) {
+            PlayerPipeline pipeline = create(program, RetainedPlayback.RENDITION_FULL);
+            pipeline.prepare();//在后台线程准备，不阻塞UI线程
+            return pipeline;
+        }
+
+        @Override
+        public boolean hasRendition(int program, int rendition) {
+            return rendition == RetainedPlayback.RENDITION_FULL;
+        }
 
+        @Override
+        public PlayerPipeline create(int program, int rendition) {
+            PlayerPipeline pipeline = new PlayerPipeline(mContext, R.raw.test_4);
+            pipeline.setLooping(true);
+            return pipeline;
+        }
+
+        @Override
+        public void release(PlayerPipeline pipeline) {
+            pipeline.release();
+        }
+
+        @Override
+        public long sizeOf(PlayerPipeline pipeline) {
+            return pipeline.estimateMemoryBytes();
+        }
     }
 }
\ No newline at end of file
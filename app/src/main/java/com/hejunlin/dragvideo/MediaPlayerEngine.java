@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.MediaPlayer;
+import android.view.Surface;
+
+import java.io.IOException;
+
+/**
+ * 用MediaPlayer实现的{@link PlayerEngine}，播放一个raw资源
+ *
+ * <p>The MediaPlayer is created in the constructor, so its callbacks arrive on the
+ * looper of the thread that called {@link Factory#create()}.</p>
+ */
+public class MediaPlayerEngine implements PlayerEngine, MediaPlayer.OnPreparedListener,
+        MediaPlayer.OnVideoSizeChangedListener, MediaPlayer.OnSeekCompleteListener,
+        MediaPlayer.OnErrorListener {
+    private final Context mContext;
+    private final int mResId;
+    private final MediaPlayer mMediaPlayer;
+    private Listener mListener;
+
+    public MediaPlayerEngine(Context context, int resId) {
+        mContext = context.getApplicationContext();
+        mResId = resId;
+        mMediaPlayer = new MediaPlayer();
+        mMediaPlayer.setOnPreparedListener(this);
+        mMediaPlayer.setOnVideoSizeChangedListener(this);
+        mMediaPlayer.setOnSeekCompleteListener(this);
+        mMediaPlayer.setOnErrorListener(this);
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    @Override
+    public void open() throws IOException {
+        AssetFileDescriptor afd = mContext.getResources().openRawResourceFd(mResId);
+        try {
+            mMediaPlayer.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(), afd.getLength());
+        } finally {
+            afd.close();
+        }
+    }
+
+    @Override
+    public void prepareAsync() {
+        mMediaPlayer.prepareAsync();
+    }
+
+    @Override
+    public void start() {
+        mMediaPlayer.start();
+    }
+
+    @Override
+    public void pause() {
+        mMediaPlayer.pause();
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return mMediaPlayer.isPlaying();
+    }
+
+    @Override
+    public void seekTo(int positionMillis) {
+        mMediaPlayer.seekTo(positionMillis);
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        return mMediaPlayer.getCurrentPosition();
+    }
+
+    @Override
+    public void setLooping(boolean looping) {
+        mMediaPlayer.setLooping(looping);
+    }
+
+    @Override
+    public void setSurface(Surface surface) {
+        mMediaPlayer.setSurface(surface);
+    }
+
+    @Override
+    public void release() {
+        mMediaPlayer.release();
+    }
+
+    @Override
+    public void onPrepared(MediaPlayer mp) {
+        if (mListener != null)
+            mListener.onPrepared(this);
+    }
+
+    @Override
+    public void onVideoSizeChanged(MediaPlayer mp, int width, int height) {
+        if (mListener != null)
+            mListener.onVideoSizeChanged(this, width, height);
+    }
+
+    @Override
+    public void onSeekComplete(MediaPlayer mp) {
+        if (mListener != null)
+            mListener.onSeekComplete(this);
+    }
+
+    @Override
+    public boolean onError(MediaPlayer mp, int what, int extra) {
+        if (mListener != null)
+            mListener.onError(this, what, extra);
+        return true;
+    }
+
+    public static class Factory implements PlayerEngine.Factory {
+        private final Context mContext;
+        private final int mResId;
+
+        public Factory(Context context, int resId) {
+            mContext = context.getApplicationContext();
+            mResId = resId;
+        }
+
+        @Override
+        public PlayerEngine create() {
+            return new MediaPlayerEngine(mContext, mResId);
+        }
+    }
+}
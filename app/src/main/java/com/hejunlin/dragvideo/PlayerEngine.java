@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import android.view.Surface;
+
+import java.io.IOException;
+
+/**
+ * The subset of a media player used by {@link PlayerPipeline}: create, prepare, start,
+ * pause, seek, surface attach and release.
+ *
+ * <p>{@link MediaPlayerEngine} drives a real {@code MediaPlayer}; tests replace it with
+ * a scripted fake so the pipeline, the prewarm pool and the lifecycle around them can
+ * be exercised on a plain JVM.</p>
+ *
+ * <p>An engine is used from a single thread. Listener callbacks are delivered on the
+ * thread that created the engine.</p>
+ */
+public interface PlayerEngine {
+
+    void setListener(Listener listener);
+
+    /**
+     * Set the data source; may block on I/O.
+     */
+    void open() throws IOException;
+
+    /**
+     * Start preparing; {@link Listener#onPrepared(PlayerEngine)} follows when done.
+     */
+    void prepareAsync();
+
+    void start();
+
+    void pause();
+
+    boolean isPlaying();
+
+    /**
+     * Start seeking; {@link Listener#onSeekComplete(PlayerEngine)} follows when done.
+     */
+    void seekTo(int positionMillis);
+
+    int getCurrentPosition();
+
+    void setLooping(boolean looping);
+
+    /**
+     * @param surface Output surface, or null to stop rendering. The caller keeps
+     *                ownership of the surface.
+     */
+    void setSurface(Surface surface);
+
+    void release();
+
+    interface Listener {
+        void onPrepared(PlayerEngine engine);
+
+        void onVideoSizeChanged(PlayerEngine engine, int width, int height);
+
+        void onSeekComplete(PlayerEngine engine);
+
+        void onError(PlayerEngine engine, int what, int extra);
+    }
+
+    interface Factory {
+        /**
+         * Create an engine whose callbacks run on the calling thread.
+         */
+        PlayerEngine create();
+    }
+}
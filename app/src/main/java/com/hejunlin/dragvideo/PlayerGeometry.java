@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+/**
+ * Lookup table of the player geometry for every vertical drag position of
+ * {@link DragVideoView}.
+ *
+ * <p>Position 0 is the maximized player and position {@link #getVerticalRange()} the
+ * minimized one. For each position the table holds the width, height, left and top of
+ * the player, so a drag frame reads four ints instead of redoing the float math. The
+ * width is interpolated with integer arithmetic, so it never grows while the player
+ * moves down and a given position always gives the same size.</p>
+ *
+ * <p>The table is rebuilt only when {@link #setup} is called with different sizes.
+ * Horizontal drags of the minimized player keep its size, so they need no table.</p>
+ */
+public class PlayerGeometry {
+    private static final int WIDTH = 0;
+    private static final int HEIGHT = 1;
+    private static final int LEFT = 2;
+    private static final int TOP = 3;
+    private static final int FIELDS = 4;
+
+    private int[] mTable = new int[0];
+    private int mVerticalRange = -1;
+
+    private int mMaxWidth;
+    private int mMinWidth;
+    private float mVideoRatio;
+    private int mAvailableWidth;
+    private int mAvailableHeight;
+    private int mMinTop;
+
+    /**
+     * @param maxWidth Width of the maximized player
+     * @param minWidth Width of the minimized player
+     * @param videoRatio Width divided by height of the player
+     * @param availableWidth Width inside the padding; the player is right aligned
+     * @param availableHeight Height inside the padding
+     * @param minTop Top of the maximized player
+     * @return true if the table was rebuilt
+     */
+    public boolean setup(int maxWidth, int minWidth, float videoRatio, int availableWidth,
+                         int availableHeight, int minTop) {
+        if (mVerticalRange >= 0 && maxWidth == mMaxWidth && minWidth == mMinWidth
+                && videoRatio == mVideoRatio && availableWidth == mAvailableWidth
+                && availableHeight == mAvailableHeight && minTop == mMinTop) {
+            return false;
+        }
+        mMaxWidth = maxWidth;
+        mMinWidth = minWidth;
+        mVideoRatio = videoRatio;
+        mAvailableWidth = availableWidth;
+        mAvailableHeight = availableHeight;
+        mMinTop = minTop;
+
+        final int range = Math.max(availableHeight - heightForWidth(minWidth, videoRatio), 0);
+        final int size = (range + 1) * FIELDS;
+        if (mTable.length < size) {
+            mTable = new int[size];
+        }
+        final long shrink = maxWidth - minWidth;
+        for (int position = 0; position <= range; position++) {
+            final int width = range == 0 ? minWidth
+                    : maxWidth - (int) ((shrink * position + range / 2) / range);
+            final int i = position * FIELDS;
+            mTable[i + WIDTH] = width;
+            mTable[i + HEIGHT] = heightForWidth(width, videoRatio);
+            mTable[i + LEFT] = availableWidth - width;
+            mTable[i + TOP] = minTop + position;
+        }
+        mVerticalRange = range;
+        return true;
+    }
+
+    /**
+     * @return whether {@link #setup} has been called
+     */
+    public boolean isReady() {
+        return mVerticalRange >= 0;
+    }
+
+    /**
+     * @return distance between the top of the maximized and the minimized player
+     */
+    public int getVerticalRange() {
+        return mVerticalRange;
+    }
+
+    /**
+     * @param verticalOffset 0 for maximized, 1 for minimized
+     * @return the nearest position in the table
+     */
+    public int positionOf(float verticalOffset) {
+        final int position = Math.round(verticalOffset * mVerticalRange);
+        return position < 0 ? 0 : position > mVerticalRange ? mVerticalRange : position;
+    }
+
+    public int getWidth(int position) {
+        return mTable[position * FIELDS + WIDTH];
+    }
+
+    public int getHeight(int position) {
+        return mTable[position * FIELDS + HEIGHT];
+    }
+
+    public int getLeft(int position) {
+        return mTable[position * FIELDS + LEFT];
+    }
+
+    public int getTop(int position) {
+        return mTable[position * FIELDS + TOP];
+    }
+
+    public static int heightForWidth(int width, float videoRatio) {
+        return (int) (width / videoRatio);
+    }
+}
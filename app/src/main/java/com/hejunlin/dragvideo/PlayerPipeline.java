@@ -0,0 +1,503 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import android.content.Context;
+import android.media.MediaPlayer;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Surface;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 在后台线程创建和准备播放器，UI线程不等待媒体I/O
+ *
+ * <p>The {@link PlayerEngine} is created, opened and prepared with prepareAsync on a
+ * dedicated worker thread, which also receives its callbacks. Every call on this class
+ * only posts to that thread, so it never blocks the caller. {@link #start()} may be
+ * called at any time; before the player is prepared the request is queued and served
+ * as soon as onPrepared arrives.</p>
+ *
+ * <p>Each stage is timed and reported to the {@link Listener} on the callback
+ * executor, the main thread unless the pipeline was built for tests with
+ * {@link #PlayerPipeline(PlayerEngine.Factory, Executor, Executor, Clock)}.</p>
+ */
+public class PlayerPipeline {
+    /**
+     * 创建播放器并设置数据源
+     */
+    public static final int STAGE_CREATE = 0;
+
+    /**
+     * prepareAsync到onPrepared
+     */
+    public static final int STAGE_PREPARE = 1;
+
+    /**
+     * 从调用start()到播放器真正开始播放，包括等待准备完成的时间
+     */
+    public static final int STAGE_START = 2;
+
+    /**
+     * 从调用seekTo()到onSeekComplete，包括等待准备完成的时间
+     */
+    public static final int STAGE_SEEK = 3;
+
+    public static final int STAGE_COUNT = 4;
+
+    /**
+     * 估算内存时假设解码器持有的输出缓冲区个数，以及视频尺寸未知时使用的尺寸
+     */
+    private static final int DECODER_BUFFERS = 6;
+    private static final int DEFAULT_VIDEO_WIDTH = 1280;
+    private static final int DEFAULT_VIDEO_HEIGHT = 720;
+
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_PREPARING = 1;
+    private static final int STATE_PREPARED = 2;
+    private static final int STATE_ERROR = 3;
+    private static final int STATE_RELEASED = 4;
+
+    /**
+     * 没有等待中的seek
+     */
+    private static final int NO_SEEK = -1;
+
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+    };
+
+    private final PlayerEngine.Factory mFactory;
+    private final Executor mWorker;
+    private final Executor mCallbackExecutor;
+    private final Clock mClock;
+    private HandlerThread mThread;
+
+    private volatile Listener mListener;
+    private volatile int mVideoWidth;
+    private volatile int mVideoHeight;
+
+    /**
+     * 以下字段只在后台线程访问
+     */
+    private PlayerEngine mEngine;
+    private int mState = STATE_IDLE;
+    private boolean mIsStartRequested;
+    private boolean mIsLooping;
+    private Surface mSurface;
+    private long mPrepareStartTime;
+    private long mStartRequestTime;
+    private int mPendingSeek = NO_SEEK;
+    private boolean mIsSeeking;
+    private long mSeekRequestTime;
+
+    /**
+     * 每个阶段最近一次的耗时(ms)和结束时间，-1表示还没有完成
+     */
+    private final long[] mStageDurations = new long[STAGE_COUNT];
+    private final long[] mStageEndTimes = new long[STAGE_COUNT];
+
+    public PlayerPipeline(Context context, int resId) {
+        this(new MediaPlayerEngine.Factory(context, resId), new HandlerThread("PlayerPipeline"));
+    }
+
+    private PlayerPipeline(PlayerEngine.Factory factory, HandlerThread thread) {
+        this(factory, new HandlerExecutor(startLooper(thread)),
+                new HandlerExecutor(Looper.getMainLooper()), SYSTEM_CLOCK);
+        mThread = thread;
+    }
+
+    /**
+     * @param worker           串行执行所有播放器操作，引擎的回调也必须在这里执行
+     * @param callbackExecutor 执行{@link Listener}回调
+     * @param clock            计算各阶段耗时
+     */
+    public PlayerPipeline(PlayerEngine.Factory factory, Executor worker, Executor callbackExecutor,
+                          Clock clock) {
+        mFactory = factory;
+        mWorker = worker;
+        mCallbackExecutor = callbackExecutor;
+        mClock = clock;
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            mStageDurations[i] = -1;
+            mStageEndTimes[i] = -1;
+        }
+    }
+
+    private static Looper startLooper(HandlerThread thread) {
+        thread.start();
+        return thread.getLooper();
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 开始创建和准备播放器，已经开始过则忽略
+     */
+    public void prepare() {
+        mWorker.execute(new Runnable() {
+            @Override
+            public void run() {
+                doPrepare();
+            }
+        });
+    }
+
+    /**
+     * 请求播放，播放器未准备好时排队等待，未开始准备时先开始准备
+     */
+    public void start() {
+        final long requestTime = mClock.uptimeMillis();
+        mWorker.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mIsStartRequested || mState == STATE_RELEASED)
+                    return;
+                mIsStartRequested = true;
+                mStartRequestTime = requestTime;
+                if (mState == STATE_PREPARED)
+                    doStart();
+                else
+                    doPrepare();
+            }
+        });
+    }
+
+    /**
+     * 暂停播放，同时取消还在排队的播放请求
+     */
+    public void pause() {
+        mWorker.execute(new Runnable() {
+            @Override
+            public void run() {
+                mIsStartRequested = false;
+                if (mState == STATE_PREPARED && mEngine.isPlaying())
+                    mEngine.pause();
+            }
+        });
+    }
+
+    /**
+     * 跳到指定位置，播放器未准备好时在准备完成后执行，连续调用只保留最后一次
+     */
+    public void seekTo(final int positionMillis) {
+        final long requestTime = mClock.uptimeMillis();
+        mWorker.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mState == STATE_RELEASED || mState == STATE_ERROR)
+                    return;
+                if (mPendingSeek == NO_SEEK && !mIsSeeking)
+                    mSeekRequestTime = requestTime;
+                mPendingSeek = positionMillis;
+                if (mState == STATE_PREPARED && !mIsSeeking)
+                    doSeek();
+            }
+        });
+    }
+
+    public void setLooping(final boolean looping) {
+        mWorker.execute(new Runnable() {
+            @Override
+            public void run() {
+                mIsLooping = looping;
+                if (mState == STATE_PREPARED)
+                    mEngine.setLooping(looping);
+            }
+        });
+    }
+
+    /**
+     * 设置输出的Surface，可以在播放器创建之前调用，传入null不再输出画面
+     * Surface交给本类管理，被替换或release()时在后台线程释放
+     */
+    public void setSurface(final Surface surface) {
+        mWorker.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mState == STATE_RELEASED) {
+                    if (surface != null)
+                        surface.release();
+                    return;
+                }
+                if (mEngine != null)
+                    mEngine.setSurface(surface);
+                if (mSurface != null && mSurface != surface)
+                    mSurface.release();
+                mSurface = surface;
+            }
+        });
+    }
+
+    /**
+     * 把播放交给另一个播放器：在本线程取出播放位置、暂停并断开Surface后，
+     * next从该位置接着播放并输出到surface。同一个Surface同时只能连接一个播放器，
+     * 所以next的调用都在断开之后才发出
+     *
+     * @param surface 交给next的Surface，为null时next不输出画面
+     */
+    public void handOffTo(final PlayerPipeline next, final Surface surface) {
+        mWorker.execute(new Runnable() {
+            @Override
+            public void run() {
+                int position = 0;
+                boolean isPlaying = mIsStartRequested;
+                mIsStartRequested = false;
+                if (mState == STATE_PREPARED) {
+                    position = mEngine.getCurrentPosition();
+                    if (mEngine.isPlaying())
+                        mEngine.pause();
+                }
+                if (mEngine != null)
+                    mEngine.setSurface(null);
+                if (mSurface != null)
+                    mSurface.release();
+                mSurface = null;
+
+                next.seekTo(position);
+                next.setSurface(surface);
+                if (isPlaying)
+                    next.start();
+            }
+        });
+    }
+
+    /**
+     * 释放播放器并结束后台线程，之后的调用都被忽略
+     */
+    public void release() {
+        mWorker.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mEngine != null)
+                    mEngine.release();
+                mEngine = null;
+                if (mSurface != null)
+                    mSurface.release();
+                mSurface = null;
+                mState = STATE_RELEASED;
+                if (mThread != null)
+                    mThread.quitSafely();
+            }
+        });
+    }
+
+    /**
+     * @return 视频宽度，尺寸未知时为0
+     */
+    public int getVideoWidth() {
+        return mVideoWidth;
+    }
+
+    public int getVideoHeight() {
+        return mVideoHeight;
+    }
+
+    /**
+     * @return 播放器大约占用的内存：YUV420输出缓冲区的总大小
+     */
+    public long estimateMemoryBytes() {
+        int width = mVideoWidth > 0 ? mVideoWidth : DEFAULT_VIDEO_WIDTH;
+        int height = mVideoHeight > 0 ? mVideoHeight : DEFAULT_VIDEO_HEIGHT;
+        return (long) width * height * 3 / 2 * DECODER_BUFFERS;
+    }
+
+    /**
+     * @return 某个阶段最近一次的耗时(ms)，还没有完成时为-1
+     */
+    public long getStageDuration(int stage) {
+        synchronized (mStageDurations) {
+            return mStageDurations[stage];
+        }
+    }
+
+    /**
+     * @return 某个阶段最近一次结束的时间，和构造时传入的Clock相同，还没有完成时为-1
+     */
+    public long getStageEndTime(int stage) {
+        synchronized (mStageDurations) {
+            return mStageEndTimes[stage];
+        }
+    }
+
+    private void doPrepare() {
+        if (mState != STATE_IDLE)
+            return;
+        long begin = mClock.uptimeMillis();
+        mEngine = mFactory.create();//在本线程创建，回调也在本线程
+        mEngine.setListener(mEngineListener);
+        try {
+            mEngine.open();
+        } catch (Exception e) {
+            e.printStackTrace();
+            onError(MediaPlayer.MEDIA_ERROR_UNKNOWN, MediaPlayer.MEDIA_ERROR_IO);
+            return;
+        }
+        if (mSurface != null)
+            mEngine.setSurface(mSurface);
+        mPrepareStartTime = mClock.uptimeMillis();
+        reportStage(STAGE_CREATE, begin);
+
+        mState = STATE_PREPARING;
+        mEngine.prepareAsync();
+    }
+
+    private void doStart() {
+        mEngine.start();
+        reportStage(STAGE_START, mStartRequestTime);
+    }
+
+    private void doSeek() {
+        mIsSeeking = true;
+        int position = mPendingSeek;
+        mPendingSeek = NO_SEEK;
+        mEngine.seekTo(position);
+    }
+
+    private void onError(final int what, final int extra) {
+        mState = STATE_ERROR;
+        mIsStartRequested = false;
+        mPendingSeek = NO_SEEK;
+        mIsSeeking = false;
+        mCallbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Listener listener = mListener;
+                if (listener != null)
+                    listener.onError(what, extra);
+            }
+        });
+    }
+
+    /**
+     * 记录一个阶段在此刻结束
+     */
+    private void reportStage(final int stage, long startTime) {
+        final long endTime = mClock.uptimeMillis();
+        final long durationMillis = endTime - startTime;
+        synchronized (mStageDurations) {
+            mStageDurations[stage] = durationMillis;
+            mStageEndTimes[stage] = endTime;
+        }
+        mCallbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Listener listener = mListener;
+                if (listener != null)
+                    listener.onStageFinished(stage, durationMillis);
+            }
+        });
+    }
+
+    private final PlayerEngine.Listener mEngineListener = new PlayerEngine.Listener() {
+        @Override
+        public void onPrepared(PlayerEngine engine) {
+            if (mState != STATE_PREPARING)
+                return;
+            mState = STATE_PREPARED;
+            reportStage(STAGE_PREPARE, mPrepareStartTime);
+            mEngine.setLooping(mIsLooping);
+            if (mPendingSeek != NO_SEEK)
+                doSeek();
+            if (mIsStartRequested)
+                doStart();
+        }
+
+        @Override
+        public void onVideoSizeChanged(PlayerEngine engine, final int width, final int height) {
+            mVideoWidth = width;
+            mVideoHeight = height;
+            mCallbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Listener listener = mListener;
+                    if (listener != null)
+                        listener.onVideoSizeChanged(width, height);
+                }
+            });
+        }
+
+        @Override
+        public void onSeekComplete(PlayerEngine engine) {
+            if (mState != STATE_PREPARED)
+                return;
+            mIsSeeking = false;
+            if (mPendingSeek != NO_SEEK) {
+                doSeek();//seek期间又有新的请求，只执行最后一个
+                return;
+            }
+            reportStage(STAGE_SEEK, mSeekRequestTime);
+        }
+
+        @Override
+        public void onError(PlayerEngine engine, int what, int extra) {
+            PlayerPipeline.this.onError(what, extra);
+        }
+    };
+
+    /**
+     * 回调都在主线程
+     */
+    public interface Listener {
+        void onVideoSizeChanged(int width, int height);
+
+        /**
+         * @param stage          {@link #STAGE_CREATE}、{@link #STAGE_PREPARE}、{@link #STAGE_START}
+         *                       或{@link #STAGE_SEEK}
+         * @param durationMillis 该阶段的耗时
+         */
+        void onStageFinished(int stage, long durationMillis);
+
+        /**
+         * 播放器出错后不会再有阶段回调，只能release
+         *
+         * @param what  PlayerEngine报告的错误，打不开视频时为MediaPlayer.MEDIA_ERROR_UNKNOWN
+         * @param extra 附加信息，打不开视频时为MediaPlayer.MEDIA_ERROR_IO
+         */
+        void onError(int what, int extra);
+    }
+
+    /**
+     * 计时用的时钟，测试中换成虚拟时钟
+     */
+    public interface Clock {
+        long uptimeMillis();
+    }
+
+    private static class HandlerExecutor implements Executor {
+        private final Handler mHandler;
+
+        HandlerExecutor(Looper looper) {
+            mHandler = new Handler(looper);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            mHandler.post(command);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity per-pointer motion history used by {@link CustomViewDragHelper}.
+ *
+ * <p>Slots are preallocated for every pointer ID that fits in the <code>mPointersDown</code>
+ * bit mask, so recording motion never has to grow or copy arrays in the middle of a
+ * gesture. Pointer IDs outside of that range are ignored.</p>
+ */
+final class PointerSlots {
+    /**
+     * Number of pointer IDs addressable by the int bit mask of pointers down.
+     */
+    public static final int MAX_POINTERS = 32;
+
+    private final float[] mInitialMotionX = new float[MAX_POINTERS];
+    private final float[] mInitialMotionY = new float[MAX_POINTERS];
+    private final float[] mLastMotionX = new float[MAX_POINTERS];
+    private final float[] mLastMotionY = new float[MAX_POINTERS];
+    private final int[] mInitialEdgesTouched = new int[MAX_POINTERS];
+    private final int[] mEdgeDragsInProgress = new int[MAX_POINTERS];
+    private final int[] mEdgeDragsLocked = new int[MAX_POINTERS];
+    private int mPointersDown;
+
+    /**
+     * @param pointerId pointer ID as reported by MotionEvent
+     * @return true if the ID has a slot in this store
+     */
+    public static boolean isValidPointerId(int pointerId) {
+        return pointerId >= 0 && pointerId < MAX_POINTERS;
+    }
+
+    /**
+     * Record the initial and last position of a pointer that just went down.
+     *
+     * @param pointerId ID of the pointer
+     * @param x X position in the parent's coordinate system
+     * @param y Y position in the parent's coordinate system
+     * @param edgesTouched Edge flags touched by the pointer
+     */
+    public void saveInitialMotion(int pointerId, float x, float y, int edgesTouched) {
+        if (!isValidPointerId(pointerId)) {
+            return;
+        }
+        mInitialMotionX[pointerId] = mLastMotionX[pointerId] = x;
+        mInitialMotionY[pointerId] = mLastMotionY[pointerId] = y;
+        mInitialEdgesTouched[pointerId] = edgesTouched;
+        mPointersDown |= 1 << pointerId;
+    }
+
+    /**
+     * Record the most recent position of a pointer.
+     */
+    public void saveLastMotion(int pointerId, float x, float y) {
+        if (!isValidPointerId(pointerId)) {
+            return;
+        }
+        mLastMotionX[pointerId] = x;
+        mLastMotionY[pointerId] = y;
+    }
+
+    /**
+     * Forget every tracked pointer.
+     */
+    public void clear() {
+        if (mPointersDown == 0) {
+            return;
+        }
+        Arrays.fill(mInitialMotionX, 0);
+        Arrays.fill(mInitialMotionY, 0);
+        Arrays.fill(mLastMotionX, 0);
+        Arrays.fill(mLastMotionY, 0);
+        Arrays.fill(mInitialEdgesTouched, 0);
+        Arrays.fill(mEdgeDragsInProgress, 0);
+        Arrays.fill(mEdgeDragsLocked, 0);
+        mPointersDown = 0;
+    }
+
+    /**
+     * Forget a single pointer.
+     */
+    public void clear(int pointerId) {
+        if (!isValidPointerId(pointerId)) {
+            return;
+        }
+        mInitialMotionX[pointerId] = 0;
+        mInitialMotionY[pointerId] = 0;
+        mLastMotionX[pointerId] = 0;
+        mLastMotionY[pointerId] = 0;
+        mInitialEdgesTouched[pointerId] = 0;
+        mEdgeDragsInProgress[pointerId] = 0;
+        mEdgeDragsLocked[pointerId] = 0;
+        mPointersDown &= ~(1 << pointerId);
+    }
+
+    public boolean isPointerDown(int pointerId) {
+        return isValidPointerId(pointerId) && (mPointersDown & 1 << pointerId) != 0;
+    }
+
+    /**
+     * @return bit mask of the pointer IDs currently down
+     */
+    public int getPointersDown() {
+        return mPointersDown;
+    }
+
+    public float getInitialMotionX(int pointerId) {
+        return isValidPointerId(pointerId) ? mInitialMotionX[pointerId] : 0;
+    }
+
+    public float getInitialMotionY(int pointerId) {
+        return isValidPointerId(pointerId) ? mInitialMotionY[pointerId] : 0;
+    }
+
+    public float getLastMotionX(int pointerId) {
+        return isValidPointerId(pointerId) ? mLastMotionX[pointerId] : 0;
+    }
+
+    public float getLastMotionY(int pointerId) {
+        return isValidPointerId(pointerId) ? mLastMotionY[pointerId] : 0;
+    }
+
+    public int getInitialEdgesTouched(int pointerId) {
+        return isValidPointerId(pointerId) ? mInitialEdgesTouched[pointerId] : 0;
+    }
+
+    public int getEdgeDragsInProgress(int pointerId) {
+        return isValidPointerId(pointerId) ? mEdgeDragsInProgress[pointerId] : 0;
+    }
+
+    public void addEdgeDragsInProgress(int pointerId, int edges) {
+        if (isValidPointerId(pointerId)) {
+            mEdgeDragsInProgress[pointerId] |= edges;
+        }
+    }
+
+    public int getEdgeDragsLocked(int pointerId) {
+        return isValidPointerId(pointerId) ? mEdgeDragsLocked[pointerId] : 0;
+    }
+
+    public void addEdgeDragsLocked(int pointerId, int edges) {
+        if (isValidPointerId(pointerId)) {
+            mEdgeDragsLocked[pointerId] |= edges;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small LRU pool of values that are expensive to create, keyed by an int, e.g.
+ * players prepared for programs the user is likely to open next.
+ *
+ * <p>{@link #warm(int)} creates a value ahead of time; {@link #obtain(int)} hands a
+ * warm value to the caller, or a new one when none was warmed. The pool keeps at
+ * most a given number of values and an estimated total size in bytes, releasing the
+ * least recently warmed ones first. Values handed out are owned by the caller until
+ * they are given back with {@link #put(int, Object)}.</p>
+ *
+ * <p>The budgets cover every value the factory created, not only the pooled ones. The
+ * owner of the values handed out reports them through {@link #setInUse(InUse)}; they
+ * count against the budgets, so the pool only keeps what is left.</p>
+ *
+ * <p>Not thread safe; use it from one thread.</p>
+ */
+public class PrewarmPool<T> {
+    private final Factory<T> mFactory;
+    private final int mMaxEntries;
+    private final long mMaxBytes;
+    private InUse<T> mInUse;
+
+    // accessOrder为true，迭代顺序即从最久未用到最近使用
+    private final LinkedHashMap<Integer, T> mEntries = new LinkedHashMap<>(8, 0.75f, true);
+
+    /**
+     * @param maxEntries Maximum number of values in use and pooled, e.g. the decoder budget
+     * @param maxBytes Maximum estimated size of all values in use and pooled
+     */
+    public PrewarmPool(Factory<T> factory, int maxEntries, long maxBytes) {
+        if (maxEntries < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Budgets must not be negative");
+        }
+        mFactory = factory;
+        mMaxEntries = maxEntries;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Set the values handed out that still hold resources, e.g. the players that are
+     * playing, and release pooled values until everything fits the budgets again.
+     */
+    public void setInUse(InUse<T> inUse) {
+        mInUse = inUse;
+        trim();
+    }
+
+    /**
+     * Create a value for the key unless the pool already has one, and mark it as the
+     * most recently used. A value larger than what the values in use leave of the byte
+     * budget is released right away and leaves the pooled values alone.
+     *
+     * @return true if a value was created and pooled
+     */
+    public boolean warm(int key) {
+        if (mEntries.get(key) != null) {
+            return false;
+        }
+        if (getAvailableEntries() <= 0) {
+            return false;
+        }
+        T value = mFactory.create(key);
+        if (mFactory.sizeOf(value) > getAvailableBytes()) {
+            mFactory.release(value);
+            return false;
+        }
+        mEntries.put(key, value);
+        trim(key);
+        return true;
+    }
+
+    /**
+     * Release the value of the key, e.g. when the gesture that warmed it turned out to
+     * be a scroll.
+     *
+     * @return true if the pool had a value for the key
+     */
+    public boolean cancel(int key) {
+        T value = mEntries.remove(key);
+        if (value == null) {
+            return false;
+        }
+        mFactory.release(value);
+        return true;
+    }
+
+    /**
+     * Take the value of the key out of the pool, creating it if it was not warm.
+     * The caller owns the returned value.
+     */
+    public T obtain(int key) {
+        T value = mEntries.remove(key);
+        return value != null ? value : mFactory.create(key);
+    }
+
+    /**
+     * Give a value back to the pool as the most recently used one. A value already
+     * pooled for the key is released, and so is a value that does not fit next to the
+     * values in use. The caller must no longer report the value as in use.
+     */
+    public void put(int key, T value) {
+        boolean tooLarge = getAvailableEntries() <= 0 || mFactory.sizeOf(value) > getAvailableBytes();
+        T old = tooLarge ? mEntries.remove(key) : mEntries.put(key, value);
+        if (old != null && old != value) {
+            mFactory.release(old);
+        }
+        if (tooLarge) {
+            mFactory.release(value);
+            return;
+        }
+        trim(key);
+    }
+
+    public boolean contains(int key) {
+        return mEntries.containsKey(key);
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * @return estimated size of all pooled values
+     */
+    public long getBytes() {
+        long bytes = 0;
+        for (T value : mEntries.values()) {
+            bytes += mFactory.sizeOf(value);
+        }
+        return bytes;
+    }
+
+    /**
+     * Release every pooled value.
+     */
+    public void clear() {
+        for (T value : mEntries.values()) {
+            mFactory.release(value);
+        }
+        mEntries.clear();
+    }
+
+    /**
+     * Release least recently used values until the pooled values and the values in use
+     * fit the budgets, e.g. after the owner started using one more value.
+     */
+    public void trim() {
+        trim(null);
+    }
+
+    /**
+     * Release least recently used values until the pool fits its budgets. The value of
+     * the given key, if any, is released last.
+     */
+    private void trim(Integer keep) {
+        final int maxEntries = getAvailableEntries();
+        final long maxBytes = getAvailableBytes();
+        long bytes = getBytes();
+        Iterator<Map.Entry<Integer, T>> it = mEntries.entrySet().iterator();
+        while ((mEntries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+            Map.Entry<Integer, T> entry = it.next();
+            if (keep != null && entry.getKey().equals(keep) && mEntries.size() > 1) {
+                continue;
+            }
+            bytes -= mFactory.sizeOf(entry.getValue());
+            it.remove();
+            mFactory.release(entry.getValue());
+        }
+    }
+
+    /**
+     * @return number of values the values in use leave of the entry budget
+     */
+    private int getAvailableEntries() {
+        return mInUse != null ? mMaxEntries - mInUse.size() : mMaxEntries;
+    }
+
+    /**
+     * @return bytes the values in use leave of the byte budget
+     */
+    private long getAvailableBytes() {
+        if (mInUse == null) {
+            return mMaxBytes;
+        }
+        long bytes = mMaxBytes;
+        for (int i = mInUse.size() - 1; i >= 0; i--) {
+            bytes -= mFactory.sizeOf(mInUse.get(i));
+        }
+        return bytes;
+    }
+
+    /**
+     * Values created by the factory that are held outside the pool
+     */
+    public interface InUse<T> {
+        int size();
+
+        T get(int index);
+    }
+
+    public interface Factory<T> {
+        T create(int key);
+
+        void release(T value);
+
+        /**
+         * @return estimated memory held by the value in bytes
+         */
+        long sizeOf(T value);
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import android.graphics.SurfaceTexture;
+import android.view.Surface;
+
+/**
+ * 跨Activity重建保留的播放状态
+ *
+ * <p>Rotation recreates the activity but not the playback: the activity hands this
+ * holder to its next instance through onRetainCustomNonConfigurationInstance, so the
+ * player keeps its decoder and position, and only its output is switched to the
+ * TextureView of the new instance. The player itself lives in a {@link PlayerPipeline},
+ * so a rotation during preparation does not restart it either.</p>
+ *
+ * <p>The SurfaceTexture is retained as well. When its TextureView goes away the
+ * texture is kept here instead of being released, and the next TextureView gets it
+ * back through setSurfaceTexture. The player keeps writing to the same Surface, so
+ * reattaching, reparenting or recreating the view never reconfigures the decoder.</p>
+ *
+ * <p>Players of other programs wait in a {@link PrewarmPool}. Switching programs takes
+ * the new player from the pool and gives the previous one back, paused. The current
+ * player and the rendition being prepared are reported to the pool as in use, so its
+ * budgets cover every prepared player and the pool keeps only what they leave.</p>
+ *
+ * <p>A program may also have a low resolution rendition for the minimized player.
+ * {@link #requestRendition(int)} prepares the other rendition in the background while
+ * the current one keeps playing, then hands the position and the surface over with
+ * {@link PlayerPipeline#handOffTo(PlayerPipeline, Surface)} and releases the old one.</p>
+ */
+public class RetainedPlayback {
+    /**
+     * 原始分辨率，最大化时使用
+     */
+    public static final int RENDITION_FULL = 0;
+
+    /**
+     * 低分辨率，最小化时使用，节省解码带宽和电量
+     */
+    public static final int RENDITION_LOW = 1;
+
+    private final PrewarmPool<PlayerPipeline> mPool;
+    private final RenditionFactory mRenditionFactory;
+    private PlayerPipeline.Listener mListener;
+    private PlayerPipeline mPipeline;
+    private int mProgram = -1;
+    private int mRendition = RENDITION_FULL;
+
+    /**
+     * 正在准备、准备好后替换mPipeline的另一个版本，没有时为null
+     */
+    private PlayerPipeline mPendingPipeline;
+    private int mPendingRendition;
+    private SurfaceTexture mSurfaceTexture;
+    private boolean mIsSurfaceTextureAttached;
+    private boolean mIsShowing;
+    private boolean mIsReleased;
+
+    /**
+     * @param pool             按节目预热的原始分辨率播放器
+     * @param renditionFactory 创建其他版本的播放器
+     */
+    public RetainedPlayback(PrewarmPool<PlayerPipeline> pool, RenditionFactory renditionFactory) {
+        mPool = pool;
+        mRenditionFactory = renditionFactory;
+        mPool.setInUse(mInUse);
+    }
+
+    public PrewarmPool<PlayerPipeline> getPool() {
+        return mPool;
+    }
+
+    /**
+     * @return 当前节目的播放器，还没有选择节目时为null
+     */
+    public PlayerPipeline getPipeline() {
+        return mPipeline;
+    }
+
+    /**
+     * 设置当前播放器的回调，切换节目或版本后自动转给新的播放器
+     */
+    public void setListener(PlayerPipeline.Listener listener) {
+        mListener = listener;
+        if (mPipeline != null)
+            mPipeline.setListener(listener);
+    }
+
+    /**
+     * @return 当前节目，还没有选择节目时为-1
+     */
+    public int getProgram() {
+        return mProgram;
+    }
+
+    /**
+     * 切换到某个节目，优先使用池中预热好的播放器，上一个节目的播放器暂停后放回池中
+     *
+     * @return 该节目的播放器
+     */
+    public PlayerPipeline switchTo(int program) {
+        if (program == mProgram)
+            return mPipeline;
+        cancelRenditionSwitch();
+        if (mPipeline != null) {
+            mPipeline.pause();
+            mPipeline.setListener(null);
+            mPipeline.setSurface(null);
+            PlayerPipeline previous = mPipeline;
+            mPipeline = null;//放回池中后不再算作正在使用
+            if (mRendition == RENDITION_FULL)
+                mPool.put(mProgram, previous);
+            else
+                previous.release();//池中只放原始分辨率的播放器
+        }
+        mPipeline = mPool.obtain(program);
+        mProgram = program;
+        mRendition = RENDITION_FULL;
+        mPool.trim();//没有预热时新建了一个播放器，池中让出它的预算
+        mPipeline.setListener(mListener);
+        if (mSurfaceTexture != null)
+            mPipeline.setSurface(new Surface(mSurfaceTexture));
+        return mPipeline;
+    }
+
+    /**
+     * @return 当前播放器的版本，{@link #RENDITION_FULL}或{@link #RENDITION_LOW}
+     */
+    public int getRendition() {
+        return mRendition;
+    }
+
+    /**
+     * 切换当前节目的版本：新版本在后台准备，准备好之前旧版本继续播放，
+     * 再次请求当前版本会取消还没完成的切换，节目没有该版本时忽略
+     */
+    public void requestRendition(int rendition) {
+        if (mIsReleased || mPipeline == null)
+            return;
+        if (mPendingPipeline != null) {
+            if (mPendingRendition == rendition)
+                return;
+            cancelRenditionSwitch();
+        }
+        if (rendition == mRendition || !mRenditionFactory.hasRendition(mProgram, rendition))
+            return;
+        mPendingRendition = rendition;
+        mPendingPipeline = mRenditionFactory.create(mProgram, rendition);
+        mPool.trim();//准备之前先让池中释放出解码器
+        mPendingPipeline.setListener(mPendingListener);
+        mPendingPipeline.prepare();
+    }
+
+    private void cancelRenditionSwitch() {
+        if (mPendingPipeline == null)
+            return;
+        mPendingPipeline.setListener(null);
+        mPendingPipeline.release();
+        mPendingPipeline = null;
+    }
+
+    /**
+     * 新版本准备好后调用：旧版本交出播放位置和Surface后释放
+     */
+    private void completeRenditionSwitch() {
+        PlayerPipeline previous = mPipeline;
+        mPipeline = mPendingPipeline;
+        mRendition = mPendingRendition;
+        mPendingPipeline = null;
+
+        previous.setListener(null);
+        previous.handOffTo(mPipeline, mSurfaceTexture != null ? new Surface(mSurfaceTexture) : null);
+        previous.release();//在交接之后执行
+        mPipeline.setListener(mListener);
+        if (mListener != null)
+            mListener.onVideoSizeChanged(mPipeline.getVideoWidth(), mPipeline.getVideoHeight());
+    }
+
+    private final PlayerPipeline.Listener mPendingListener = new PlayerPipeline.Listener() {
+        @Override
+        public void onVideoSizeChanged(int width, int height) {
+        }
+
+        @Override
+        public void onStageFinished(int stage, long durationMillis) {
+            if (stage == PlayerPipeline.STAGE_PREPARE && mPendingPipeline != null)
+                completeRenditionSwitch();
+        }
+
+        @Override
+        public void onError(int what, int extra) {
+            cancelRenditionSwitch();//新版本出错时继续播放当前版本
+        }
+    };
+
+    /**
+     * 播放器是否处于显示状态，重建后据此恢复DragVideoView
+     */
+    public void setShowing(boolean showing) {
+        mIsShowing = showing;
+    }
+
+    public boolean isShowing() {
+        return mIsShowing;
+    }
+
+    /**
+     * SurfaceTexture显示到TextureView上时调用：新建的SurfaceTexture会替换保留的那个，
+     * 通过setSurfaceTexture接回的则什么都不用做，播放器一直在用它
+     */
+    public void attachSurfaceTexture(SurfaceTexture surfaceTexture) {
+        mIsSurfaceTextureAttached = true;
+        if (surfaceTexture == mSurfaceTexture)
+            return;
+        if (mSurfaceTexture != null)
+            mSurfaceTexture.release();
+        mSurfaceTexture = surfaceTexture;
+        if (!mIsReleased && mPipeline != null)
+            mPipeline.setSurface(new Surface(surfaceTexture));
+    }
+
+    /**
+     * 在onSurfaceTextureDestroyed中调用
+     *
+     * @return true表示SurfaceTexture由本类保留，TextureView不要释放它
+     */
+    public boolean detachSurfaceTexture() {
+        mIsSurfaceTextureAttached = false;
+        if (mIsReleased) {
+            mSurfaceTexture = null;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return 保留着、还没有显示到TextureView上的SurfaceTexture，没有时为null
+     */
+    public SurfaceTexture getDetachedSurfaceTexture() {
+        return mIsSurfaceTextureAttached ? null : mSurfaceTexture;
+    }
+
+    public void release() {
+        if (mIsReleased)
+            return;
+        mPool.clear();
+        cancelRenditionSwitch();
+        if (mPipeline != null)
+            mPipeline.release();
+        if (mSurfaceTexture != null && !mIsSurfaceTextureAttached) {//还在TextureView上的由TextureView释放
+            mSurfaceTexture.release();
+            mSurfaceTexture = null;
+        }
+        mIsReleased = true;
+    }
+
+    /**
+     * 当前播放器和正在准备的版本，计入池的预算
+     */
+    private final PrewarmPool.InUse<PlayerPipeline> mInUse = new PrewarmPool.InUse<PlayerPipeline>() {
+        @Override
+        public int size() {
+            return (mPipeline != null ? 1 : 0) + (mPendingPipeline != null ? 1 : 0);
+        }
+
+        @Override
+        public PlayerPipeline get(int index) {
+            return index == 0 && mPipeline != null ? mPipeline : mPendingPipeline;
+        }
+    };
+
+    public interface RenditionFactory {
+        /**
+         * @return 节目是否有这个版本
+         */
+        boolean hasRendition(int program, int rendition);
+
+        /**
+         * 创建节目某个版本的播放器，不需要开始准备
+         */
+        PlayerPipeline create(int program, int rendition);
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+/**
+ * Physics based replacement for ScrollerCompat used by {@link CustomViewDragHelper}
+ * to settle the captured view.
+ *
+ * <p>The engine always knows the position and velocity of the view, so a settle can be
+ * retargeted while in flight and continues smoothly with its current velocity instead
+ * of restarting from rest. Time advances in fixed steps of {@link #STEP_MILLIS}
+ * regardless of frame pacing, which makes the motion deterministic for a given
+ * sequence of calls.</p>
+ *
+ * <p>Settles use a critically damped spring, solved exactly for each step so it is
+ * stable for any stiffness. Flings decelerate with constant friction. Both stop at the
+ * given bounds, since a spring released towards its target faster than it would pull
+ * overshoots it once.</p>
+ */
+public class SettleEngine {
+    /**
+     * Length of a simulation step
+     */
+    public static final int STEP_MILLIS = 2;
+
+    /**
+     * Upper bound on the time simulated by one {@link #computeScrollOffset(long)} call,
+     * so a long stall does not cause a burst of steps
+     */
+    private static final int MAX_STEPS_PER_FRAME = 50;
+
+    /**
+     * omega * duration at which a critically damped spring starting at rest is within
+     * 0.05% of the target, i.e. less than half a pixel away after a full screen settle
+     */
+    private static final float SETTLE_OMEGA_DURATION = 10f;
+
+    private static final int MIN_SPRING_DURATION = 50; // ms
+
+    /**
+     * Motion smaller than these is considered to be at rest.
+     */
+    private static final float REST_DISTANCE = 0.5f; // px
+    private static final float REST_VELOCITY = 10f; // px/s
+
+    private static final float FLING_FRICTION = 4f; // 1/s
+
+    private static final int MODE_IDLE = 0;
+    private static final int MODE_SPRING = 1;
+    private static final int MODE_FLING = 2;
+
+    private int mMode = MODE_IDLE;
+
+    private float mX;
+    private float mY;
+    private float mVelocityX; // px/s
+    private float mVelocityY; // px/s
+
+    private float mFinalX;
+    private float mFinalY;
+
+    // Spring constants
+    private float mOmega;
+    private float mStepDecay;
+
+    // Spring or fling bounds
+    private float mMinX;
+    private float mMaxX;
+    private float mMinY;
+    private float mMaxY;
+    private float mFlingStepDecay;
+
+    private long mLastTime;
+
+    /**
+     * Reset position and velocity and stop any motion.
+     */
+    public void setState(float x, float y, float velocityX, float velocityY) {
+        mX = x;
+        mY = y;
+        mVelocityX = velocityX;
+        mVelocityY = velocityY;
+        mFinalX = x;
+        mFinalY = y;
+        mMode = MODE_IDLE;
+    }
+
+    /**
+     * Move to the given position, keeping the current velocity and motion.
+     * Used while the view follows a pointer.
+     */
+    public void setPosition(float x, float y) {
+        mX = x;
+        mY = y;
+    }
+
+    /**
+     * Replace the current velocity, e.g. with the pointer velocity on release.
+     */
+    public void setVelocity(float velocityX, float velocityY) {
+        mVelocityX = velocityX;
+        mVelocityY = velocityY;
+    }
+
+    /**
+     * Settle at the given position starting from the current position and velocity.
+     * Calling this again while a settle is running retargets it without losing velocity.
+     *
+     * @param finalX Target X position
+     * @param finalY Target Y position
+     * @param durationMillis Approximate time to come to rest when starting from rest
+     * @param nowMillis Current animation time
+     */
+    public void springTo(int finalX, int finalY, int durationMillis, long nowMillis) {
+        springTo(finalX, finalY, Integer.MIN_VALUE, Integer.MAX_VALUE,
+                Integer.MIN_VALUE, Integer.MAX_VALUE, durationMillis, nowMillis);
+    }
+
+    /**
+     * Settle at the given position without leaving the given bounds, which must contain
+     * the target. Reaching a bound stops the motion along that axis.
+     *
+     * @see #springTo(int, int, int, long)
+     */
+    public void springTo(int finalX, int finalY, int minX, int maxX, int minY, int maxY,
+                         int durationMillis, long nowMillis) {
+        mMinX = minX;
+        mMaxX = maxX;
+        mMinY = minY;
+        mMaxY = maxY;
+        final int duration = Math.max(durationMillis, MIN_SPRING_DURATION);
+        mOmega = SETTLE_OMEGA_DURATION * 1000f / duration;
+        mStepDecay = (float) Math.exp(-mOmega * STEP_MILLIS / 1000f);
+        mFinalX = finalX;
+        mFinalY = finalY;
+        mLastTime = nowMillis;
+        mMode = MODE_SPRING;
+    }
+
+    /**
+     * Fling from the current position with the given velocity until friction stops it
+     * or it reaches a bound.
+     */
+    public void fling(float velocityX, float velocityY, int minX, int maxX, int minY, int maxY,
+                      long nowMillis) {
+        mVelocityX = velocityX;
+        mVelocityY = velocityY;
+        mMinX = minX;
+        mMaxX = maxX;
+        mMinY = minY;
+        mMaxY = maxY;
+        mFlingStepDecay = (float) Math.exp(-FLING_FRICTION * STEP_MILLIS / 1000f);
+        mFinalX = clamp(mX + mVelocityX / FLING_FRICTION, minX, maxX);
+        mFinalY = clamp(mY + mVelocityY / FLING_FRICTION, minY, maxY);
+        mLastTime = nowMillis;
+        mMode = MODE_FLING;
+    }
+
+    /**
+     * Advance the simulation to the given time.
+     *
+     * @param nowMillis Current animation time
+     * @return true if the motion was still running before this call, matching
+     * Scroller#computeScrollOffset()
+     */
+    public boolean computeScrollOffset(long nowMillis) {
+        if (mMode == MODE_IDLE) {
+            return false;
+        }
+        int steps = (int) ((nowMillis - mLastTime) / STEP_MILLIS);
+        if (steps <= 0) {
+            return true;
+        }
+        mLastTime += (long) steps * STEP_MILLIS;
+        if (steps > MAX_STEPS_PER_FRAME) {
+            steps = MAX_STEPS_PER_FRAME;
+        }
+        for (int i = 0; i < steps && mMode != MODE_IDLE; i++) {
+            if (mMode == MODE_SPRING) {
+                stepSpring();
+            } else {
+                stepFling();
+            }
+        }
+        return true;
+    }
+
+    private void stepSpring() {
+        final float dt = STEP_MILLIS / 1000f;
+        // Exact solution of x'' = -omega^2 * e - 2 * omega * x' over one step, e = x - final
+        final float ex = mX - mFinalX;
+        final float ey = mY - mFinalY;
+        final float cx = mVelocityX + mOmega * ex;
+        final float cy = mVelocityY + mOmega * ey;
+        mX = mFinalX + (ex + cx * dt) * mStepDecay;
+        mY = mFinalY + (ey + cy * dt) * mStepDecay;
+        mVelocityX = (mVelocityX - mOmega * cx * dt) * mStepDecay;
+        mVelocityY = (mVelocityY - mOmega * cy * dt) * mStepDecay;
+        clampToBounds();
+
+        if (Math.abs(mX - mFinalX) < REST_DISTANCE && Math.abs(mY - mFinalY) < REST_DISTANCE
+                && Math.abs(mVelocityX) < REST_VELOCITY && Math.abs(mVelocityY) < REST_VELOCITY) {
+            abortAnimation();
+        }
+    }
+
+    private void stepFling() {
+        final float dt = STEP_MILLIS / 1000f;
+        mVelocityX *= mFlingStepDecay;
+        mVelocityY *= mFlingStepDecay;
+        mX += mVelocityX * dt;
+        mY += mVelocityY * dt;
+        clampToBounds();
+        if (Math.abs(mVelocityX) < REST_VELOCITY && Math.abs(mVelocityY) < REST_VELOCITY) {
+            mFinalX = mX;
+            mFinalY = mY;
+            abortAnimation();
+        }
+    }
+
+    private void clampToBounds() {
+        if (mX < mMinX || mX > mMaxX) {
+            mX = clamp(mX, mMinX, mMaxX);
+            mVelocityX = 0;
+        }
+        if (mY < mMinY || mY > mMaxY) {
+            mY = clamp(mY, mMinY, mMaxY);
+            mVelocityY = 0;
+        }
+    }
+
+    /**
+     * Stop the motion and jump to the final position.
+     */
+    public void abortAnimation() {
+        mX = mFinalX;
+        mY = mFinalY;
+        mVelocityX = 0;
+        mVelocityY = 0;
+        mMode = MODE_IDLE;
+    }
+
+    public boolean isFinished() {
+        return mMode == MODE_IDLE;
+    }
+
+    public int getCurrX() {
+        return Math.round(mX);
+    }
+
+    public int getCurrY() {
+        return Math.round(mY);
+    }
+
+    public int getFinalX() {
+        return Math.round(mFinalX);
+    }
+
+    public int getFinalY() {
+        return Math.round(mFinalY);
+    }
+
+    /**
+     * @return current horizontal velocity in pixels per second
+     */
+    public float getCurrVelocityX() {
+        return mVelocityX;
+    }
+
+    /**
+     * @return current vertical velocity in pixels per second
+     */
+    public float getCurrVelocityY() {
+        return mVelocityY;
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return value < min ? min : value > max ? max : value;
+    }
+}
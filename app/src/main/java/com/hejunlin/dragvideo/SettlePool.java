@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+/**
+ * Settle state of the views that {@link CustomViewDragHelper} animates on their own,
+ * next to the captured view.
+ *
+ * <p>Active entries are packed at the front of the arrays, so advancing them costs time
+ * proportional to the number of moving views rather than the number of children.
+ * Engines of finished entries stay behind the active ones and are handed out again, so
+ * a steady number of moving views does not allocate.</p>
+ *
+ * @param <T> Key type, the animated view
+ */
+final class SettlePool<T> {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private Object[] mViews = new Object[INITIAL_CAPACITY];
+    private SettleEngine[] mEngines = new SettleEngine[INITIAL_CAPACITY];
+    private int mSize;
+
+    /**
+     * @return number of views currently settling
+     */
+    int size() {
+        return mSize;
+    }
+
+    @SuppressWarnings("unchecked")
+    T getView(int index) {
+        return (T) mViews[index];
+    }
+
+    SettleEngine getEngine(int index) {
+        return mEngines[index];
+    }
+
+    /**
+     * @return index of the view, or -1 if it is not settling
+     */
+    int indexOf(T view) {
+        for (int i = 0; i < mSize; i++) {
+            if (mViews[i] == view) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the engine of a settling view, adding the view with a pooled engine if it is
+     * not settling yet. A newly added engine keeps the state of its previous use and must
+     * be reset by the caller.
+     */
+    SettleEngine obtain(T view) {
+        final int index = indexOf(view);
+        if (index >= 0) {
+            return mEngines[index];
+        }
+        final SettleEngine engine = spareEngine();
+        mViews[mSize] = view;
+        mSize++;
+        return engine;
+    }
+
+    /**
+     * Add a view that is not settling yet together with the engine already driving it.
+     *
+     * @return a pooled engine that the caller owns in exchange
+     */
+    SettleEngine add(T view, SettleEngine engine) {
+        final SettleEngine spare = spareEngine();
+        mViews[mSize] = view;
+        mEngines[mSize] = engine;
+        mSize++;
+        return spare;
+    }
+
+    /**
+     * Remove an entry, taking over its engine and leaving the given one in the pool.
+     *
+     * @return the engine that was driving the removed view
+     */
+    SettleEngine exchange(int index, SettleEngine engine) {
+        final SettleEngine taken = mEngines[index];
+        mEngines[index] = engine;
+        remove(index);
+        return taken;
+    }
+
+    /**
+     * Remove an entry. The last entry takes its place, so entries after
+     * <code>index</code> are reordered.
+     */
+    void remove(int index) {
+        final int last = mSize - 1;
+        final SettleEngine engine = mEngines[index];
+        mViews[index] = mViews[last];
+        mEngines[index] = mEngines[last];
+        mViews[last] = null;
+        mEngines[last] = engine;
+        mSize = last;
+    }
+
+    void clear() {
+        for (int i = 0; i < mSize; i++) {
+            mViews[i] = null;
+        }
+        mSize = 0;
+    }
+
+    /**
+     * @return the engine in the first free slot, created if the pool never got this big
+     */
+    private SettleEngine spareEngine() {
+        if (mSize == mViews.length) {
+            final int capacity = mSize * 2;
+            final Object[] views = new Object[capacity];
+            final SettleEngine[] engines = new SettleEngine[capacity];
+            System.arraycopy(mViews, 0, views, 0, mSize);
+            System.arraycopy(mEngines, 0, engines, 0, mSize);
+            mViews = views;
+            mEngines = engines;
+        }
+        if (mEngines[mSize] == null) {
+            mEngines[mSize] = new SettleEngine();
+        }
+        return mEngines[mSize];
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import java.io.PrintWriter;
+
+/**
+ * Timestamps of the phases between launching the app or clicking a program and the
+ * first decoded frame on screen.
+ *
+ * <p>Every mark keeps the first time it was recorded, so marks reported on every
+ * frame, like {@link #MARK_FIRST_FRAME}, cost only a comparison after that. Cold start
+ * marks are recorded once per instance; playback marks are cleared by
+ * {@link #beginSession(long)} and ignored until the first session begins. All times
+ * are in milliseconds of the same uptime clock as the player pipeline.</p>
+ *
+ * <p>Not thread safe; use it from the main thread.</p>
+ */
+public class StartupTrace {
+    /**
+     * Cold start: Activity.onCreate entered and returned
+     */
+    public static final int MARK_CREATE_BEGIN = 0;
+    public static final int MARK_CREATE_END = 1;
+
+    /**
+     * Playback: a program was clicked, which begins a session
+     */
+    public static final int MARK_CLICK = 2;
+
+    /**
+     * DragVideoView.show() was called
+     */
+    public static final int MARK_SHOW = 3;
+
+    /**
+     * The player was created and given its data source. Prewarmed players report
+     * times before the click.
+     */
+    public static final int MARK_PLAYER_CREATE = 4;
+    public static final int MARK_PREPARE_BEGIN = 5;
+    public static final int MARK_PREPARE_END = 6;
+
+    /**
+     * start() was requested, and the player actually started
+     */
+    public static final int MARK_START_REQUEST = 7;
+    public static final int MARK_START = 8;
+
+    /**
+     * First onSurfaceTextureUpdated of the session
+     */
+    public static final int MARK_FIRST_FRAME = 9;
+
+    /**
+     * The maximize settle reached STATE_IDLE
+     */
+    public static final int MARK_SETTLED = 10;
+
+    public static final int MARK_COUNT = 11;
+
+    private static final long UNSET = Long.MIN_VALUE;
+
+    private final long[] mTimes = new long[MARK_COUNT];
+    private int mSessionCount;
+
+    public StartupTrace() {
+        for (int i = 0; i < MARK_COUNT; i++) {
+            mTimes[i] = UNSET;
+        }
+    }
+
+    /**
+     * Clear the playback marks and record {@link #MARK_CLICK}.
+     */
+    public void beginSession(long clickMillis) {
+        for (int i = MARK_CLICK; i < MARK_COUNT; i++) {
+            mTimes[i] = UNSET;
+        }
+        mTimes[MARK_CLICK] = clickMillis;
+        mSessionCount++;
+    }
+
+    /**
+     * @return true if the mark was recorded, false if it already had a time or is a
+     * playback mark outside of a session
+     */
+    public boolean mark(int mark, long timeMillis) {
+        if (mTimes[mark] != UNSET || (mark > MARK_CLICK && mSessionCount == 0)) {
+            return false;
+        }
+        mTimes[mark] = timeMillis;
+        return true;
+    }
+
+    public boolean isMarked(int mark) {
+        return mTimes[mark] != UNSET;
+    }
+
+    /**
+     * @return time of the mark, only meaningful if {@link #isMarked(int)}
+     */
+    public long getTime(int mark) {
+        return mTimes[mark];
+    }
+
+    /**
+     * @return time of the mark relative to {@link #MARK_CREATE_BEGIN} for cold start
+     * marks and to {@link #MARK_CLICK} for playback marks, negative for work done ahead
+     * of the click, or -1 if either mark is missing
+     */
+    public long getElapsed(int mark) {
+        final int origin = mark < MARK_CLICK ? MARK_CREATE_BEGIN : MARK_CLICK;
+        if (mTimes[mark] == UNSET || mTimes[origin] == UNSET) {
+            return -1;
+        }
+        return mTimes[mark] - mTimes[origin];
+    }
+
+    /**
+     * @return time from the click to the first frame, or -1 if not known yet
+     */
+    public long getTimeToFirstFrame() {
+        return getElapsed(MARK_FIRST_FRAME);
+    }
+
+    /**
+     * @return true once the current session has shown a frame and settled maximized
+     */
+    public boolean isComplete() {
+        return mTimes[MARK_FIRST_FRAME] != UNSET && mTimes[MARK_SETTLED] != UNSET;
+    }
+
+    public int getSessionCount() {
+        return mSessionCount;
+    }
+
+    /**
+     * Write every mark with its elapsed time, one per line.
+     */
+    public void dump(String prefix, PrintWriter writer) {
+        writer.print(prefix);
+        writer.print("StartupTrace sessions=");
+        writer.println(mSessionCount);
+        for (int i = 0; i < MARK_COUNT; i++) {
+            writer.print(prefix);
+            writer.print("  ");
+            writer.print(markName(i));
+            if (mTimes[i] == UNSET) {
+                writer.println(" -");
+            } else {
+                final long elapsed = getElapsed(i);
+                writer.print(elapsed >= 0 ? " +" : " ");
+                writer.print(elapsed);
+                writer.print("ms @");
+                writer.println(mTimes[i]);
+            }
+        }
+    }
+
+    static String markName(int mark) {
+        switch (mark) {
+            case MARK_CREATE_BEGIN:
+                return "createBegin";
+            case MARK_CREATE_END:
+                return "createEnd";
+            case MARK_CLICK:
+                return "click";
+            case MARK_SHOW:
+                return "show";
+            case MARK_PLAYER_CREATE:
+                return "playerCreate";
+            case MARK_PREPARE_BEGIN:
+                return "prepareBegin";
+            case MARK_PREPARE_END:
+                return "prepareEnd";
+            case MARK_START_REQUEST:
+                return "startRequest";
+            case MARK_START:
+                return "start";
+            case MARK_FIRST_FRAME:
+                return "firstFrame";
+            case MARK_SETTLED:
+                return "settled";
+            default:
+                return String.valueOf(mark);
+        }
+    }
+}
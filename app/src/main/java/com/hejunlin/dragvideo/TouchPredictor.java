@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+/**
+ * Extrapolates a pointer to the time its movement will be displayed, so a dragged view
+ * does not trail behind the finger by the input-to-display latency.
+ *
+ * <p>A second degree polynomial is fitted to the recent samples of one pointer, giving
+ * its velocity and acceleration at the newest sample. The prediction is bounded both in
+ * time and in distance, and is dropped when it points against the current motion,
+ * which happens when the pointer is about to stop. Like {@link VelocityEstimator} the
+ * samples live in a primitive ring buffer and predicting never allocates.</p>
+ */
+public class TouchPredictor {
+    /**
+     * Number of samples kept.
+     */
+    public static final int HISTORY_SIZE = 20;
+
+    /**
+     * Samples older than this, relative to the newest sample, are ignored.
+     */
+    private static final long HORIZON_MS = 50;
+
+    /**
+     * A gap this long between two samples means the pointer stopped in between.
+     */
+    private static final long ASSUME_POINTER_STOPPED_MS = 40;
+
+    /**
+     * Predictions never look further ahead than this.
+     */
+    public static final int MAX_PREDICTION_MS = 40;
+
+    private final long[] mTime = new long[HISTORY_SIZE];
+    private final float[] mX = new float[HISTORY_SIZE];
+    private final float[] mY = new float[HISTORY_SIZE];
+    private int mHead;
+    private int mCount;
+
+    private float mMaxDistance = Float.MAX_VALUE;
+
+    private float mOffsetX;
+    private float mOffsetY;
+
+    // Scratch window, ordered oldest to newest
+    private final float[] mWindowTime = new float[HISTORY_SIZE];
+    private final float[] mWindowPos = new float[HISTORY_SIZE];
+    private final double[] mFit = new double[2];
+
+    /**
+     * Forget all samples and the last prediction.
+     */
+    public void clear() {
+        mHead = 0;
+        mCount = 0;
+        mOffsetX = 0;
+        mOffsetY = 0;
+    }
+
+    /**
+     * @param maxDistance Upper bound in pixels on the distance of a prediction along each axis
+     */
+    public void setMaxDistance(float maxDistance) {
+        mMaxDistance = maxDistance;
+    }
+
+    /**
+     * Add a position sample. Samples must be added in time order, including the historical
+     * samples batched into a MotionEvent.
+     */
+    public void addSample(long eventTimeMillis, float x, float y) {
+        mTime[mHead] = eventTimeMillis;
+        mX[mHead] = x;
+        mY[mHead] = y;
+        mHead = (mHead + 1) % HISTORY_SIZE;
+        if (mCount < HISTORY_SIZE) {
+            mCount++;
+        }
+    }
+
+    /**
+     * Predict how far the pointer will have moved from its newest sample at the given time.
+     * The result is read with {@link #getOffsetX()} and {@link #getOffsetY()}.
+     *
+     * @param targetTimeMillis Expected display time, in the time base of the samples
+     */
+    public void predict(long targetTimeMillis) {
+        mOffsetX = 0;
+        mOffsetY = 0;
+        final int size = fillWindowTime();
+        if (size < 2) {
+            return;
+        }
+        final int newest = (mHead + HISTORY_SIZE - 1) % HISTORY_SIZE;
+        final float dt = Math.min(targetTimeMillis - mTime[newest], MAX_PREDICTION_MS);
+        if (dt <= 0) {
+            return;
+        }
+        fillWindowPos(size, mX);
+        mOffsetX = extrapolate(size, dt);
+        fillWindowPos(size, mY);
+        mOffsetY = extrapolate(size, dt);
+    }
+
+    /**
+     * @return predicted horizontal distance in pixels from the newest sample
+     */
+    public float getOffsetX() {
+        return mOffsetX;
+    }
+
+    /**
+     * @return predicted vertical distance in pixels from the newest sample
+     */
+    public float getOffsetY() {
+        return mOffsetY;
+    }
+
+    private float extrapolate(int size, float dt) {
+        fit(mWindowTime, mWindowPos, size, mFit);
+        final double velocity = mFit[0];
+        final double acceleration = mFit[1];
+        final double offset = velocity * dt + 0.5 * acceleration * dt * dt;
+        if (offset * velocity <= 0) {
+            // Decelerating past a stop; the pointer is not going to move on.
+            return 0;
+        }
+        return (float) Math.max(-mMaxDistance, Math.min(offset, mMaxDistance));
+    }
+
+    /**
+     * Least squares fit of pos = a + b*t + c*t^2.
+     *
+     * @param out receives the velocity b and the acceleration 2c at t = 0,
+     *            with a straight line fit (zero acceleration) for fewer than 3 samples
+     */
+    static void fit(float[] time, float[] pos, int size, double[] out) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0;
+        double p0 = 0, p1 = 0, p2 = 0;
+        for (int i = 0; i < size; i++) {
+            final double t = time[i];
+            final double t2 = t * t;
+            final double p = pos[i];
+            s0 += 1;
+            s1 += t;
+            s2 += t2;
+            s3 += t2 * t;
+            s4 += t2 * t2;
+            p0 += p;
+            p1 += p * t;
+            p2 += p * t2;
+        }
+
+        if (size >= 3) {
+            final double det = s0 * (s2 * s4 - s3 * s3)
+                    - s1 * (s1 * s4 - s3 * s2)
+                    + s2 * (s1 * s3 - s2 * s2);
+            if (Math.abs(det) > 1e-6) {
+                // Cramer's rule for the linear and quadratic coefficients.
+                final double detB = s0 * (p1 * s4 - s3 * p2)
+                        - p0 * (s1 * s4 - s3 * s2)
+                        + s2 * (s1 * p2 - p1 * s2);
+                final double detC = s0 * (s2 * p2 - p1 * s3)
+                        - s1 * (s1 * p2 - p1 * s2)
+                        + p0 * (s1 * s3 - s2 * s2);
+                out[0] = detB / det;
+                out[1] = 2 * detC / det;
+                return;
+            }
+        }
+
+        final double det = s0 * s2 - s1 * s1;
+        out[0] = Math.abs(det) < 1e-6 ? 0 : (s0 * p1 - s1 * p0) / det;
+        out[1] = 0;
+    }
+
+    private int fillWindowTime() {
+        if (mCount == 0) {
+            return 0;
+        }
+        final int newest = (mHead + HISTORY_SIZE - 1) % HISTORY_SIZE;
+        final long newestTime = mTime[newest];
+
+        int size = 1;
+        long previous = newestTime;
+        while (size < mCount) {
+            final long t = mTime[(newest - size + HISTORY_SIZE) % HISTORY_SIZE];
+            if (newestTime - t > HORIZON_MS || previous - t > ASSUME_POINTER_STOPPED_MS) {
+                break;
+            }
+            previous = t;
+            size++;
+        }
+
+        for (int i = 0; i < size; i++) {
+            final int index = (newest - (size - 1 - i) + HISTORY_SIZE) % HISTORY_SIZE;
+            mWindowTime[i] = mTime[index] - newestTime;
+        }
+        return size;
+    }
+
+    private void fillWindowPos(int size, float[] source) {
+        final int newest = (mHead + HISTORY_SIZE - 1) % HISTORY_SIZE;
+        for (int i = 0; i < size; i++) {
+            final int index = (newest - (size - 1 - i) + HISTORY_SIZE) % HISTORY_SIZE;
+            mWindowPos[i] = source[index];
+        }
+    }
+}
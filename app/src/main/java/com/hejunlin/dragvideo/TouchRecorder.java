@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import android.support.v4.view.MotionEventCompat;
+import android.view.MotionEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 把DragVideoView收到的触摸事件记录为{@link TouchRecording}格式，
+ * 包括历史采样点，用于回放重现手势
+ */
+public class TouchRecorder {
+    private final TouchRecording.Writer mWriter = new TouchRecording.Writer();
+
+    // 复用的事件缓冲区，按需扩容
+    private final int[] mPointerIds = new int[PointerSlots.MAX_POINTERS];
+    private long[] mTimes = new long[8];
+    private float[] mXs = new float[8];
+    private float[] mYs = new float[8];
+
+    /**
+     * 记录一个事件，坐标为事件当前的坐标系
+     */
+    public void record(MotionEvent ev) {
+        final int pointerCount = Math.min(ev.getPointerCount(), PointerSlots.MAX_POINTERS);
+        for (int i = 0; i < pointerCount; i++) {
+            final int id = ev.getPointerId(i);
+            if (!PointerSlots.isValidPointerId(id))
+                return;
+            mPointerIds[i] = id;
+        }
+
+        final int historySize = ev.getHistorySize();
+        final int sampleCount = historySize + 1;
+        ensureCapacity(sampleCount, sampleCount * pointerCount);
+        for (int h = 0; h < historySize; h++) {
+            mTimes[h] = ev.getHistoricalEventTime(h);
+            for (int i = 0; i < pointerCount; i++) {
+                mXs[h * pointerCount + i] = ev.getHistoricalX(i, h);
+                mYs[h * pointerCount + i] = ev.getHistoricalY(i, h);
+            }
+        }
+        mTimes[historySize] = ev.getEventTime();
+        for (int i = 0; i < pointerCount; i++) {
+            mXs[historySize * pointerCount + i] = ev.getX(i);
+            mYs[historySize * pointerCount + i] = ev.getY(i);
+        }
+
+        mWriter.writeEvent(MotionEventCompat.getActionMasked(ev), MotionEventCompat.getActionIndex(ev),
+                pointerCount, mPointerIds, sampleCount, mTimes, mXs, mYs);
+    }
+
+    /**
+     * @return 已记录的字节数
+     */
+    public int size() {
+        return mWriter.size();
+    }
+
+    public byte[] toByteArray() {
+        return mWriter.toByteArray();
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        mWriter.writeTo(out);
+    }
+
+    public void clear() {
+        mWriter.clear();
+    }
+
+    private void ensureCapacity(int samples, int positions) {
+        if (mTimes.length < samples)
+            mTimes = new long[samples];
+        if (mXs.length < positions) {
+            mXs = new float[positions];
+            mYs = new float[positions];
+        }
+    }
+}
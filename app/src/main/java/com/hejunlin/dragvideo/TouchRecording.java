@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compact binary format for the touch streams received by {@link DragVideoView}, so
+ * gestures from the field can be replayed as regression tests and benchmarks.
+ *
+ * <p>A recording starts with the magic bytes <code>DVTR</code> and a version byte,
+ * followed by one record per event:</p>
+ * <pre>
+ *   byte    action (masked)
+ *   byte    action index
+ *   byte    pointer count P
+ *   varint  sample count S, the historical samples plus the current one
+ *   byte[P] pointer ids
+ *   S times:
+ *     varint  milliseconds since the previous sample of the recording
+ *     P times:
+ *       varint  zigzag x delta, in 1/16 px, against the previous sample of the pointer id
+ *       varint  zigzag y delta
+ * </pre>
+ *
+ * <p>A move of a single pointer by less than 4 px with no history takes 8 bytes. Writing and
+ * reading reuse their buffers; the writer's byte buffer only grows.</p>
+ */
+public final class TouchRecording {
+    static final int MAGIC = 'D' << 24 | 'V' << 16 | 'T' << 8 | 'R';
+    static final int VERSION = 1;
+
+    /**
+     * Positions are stored in fixed point with this many steps per pixel.
+     */
+    private static final float POSITION_SCALE = 16f;
+
+    private static final int MAX_POINTERS = PointerSlots.MAX_POINTERS;
+
+    private TouchRecording() {
+    }
+
+    /**
+     * Appends events to a recording.
+     */
+    public static final class Writer {
+        private final ByteArrayOutputStream mOut = new ByteArrayOutputStream();
+        private final int[] mLastX = new int[MAX_POINTERS];
+        private final int[] mLastY = new int[MAX_POINTERS];
+        private long mLastTime;
+        private boolean mStarted;
+
+        public Writer() {
+            writeHeader();
+        }
+
+        /**
+         * Append an event.
+         *
+         * @param action Masked action, e.g. MotionEvent.ACTION_MOVE
+         * @param actionIndex Pointer index of a pointer down or up action
+         * @param pointerCount Number of pointers P
+         * @param pointerIds Pointer ids, P entries
+         * @param sampleCount Number of samples S, historical samples first
+         * @param times Sample times in milliseconds, S entries in ascending order
+         * @param xs X positions, sample s of pointer i at <code>s * P + i</code>
+         * @param ys Y positions, same layout as <code>xs</code>
+         */
+        public void writeEvent(int action, int actionIndex, int pointerCount, int[] pointerIds,
+                               int sampleCount, long[] times, float[] xs, float[] ys) {
+            for (int i = 0; i < pointerCount; i++) {
+                if (!PointerSlots.isValidPointerId(pointerIds[i])) {
+                    throw new IllegalArgumentException("Pointer id out of range: " + pointerIds[i]);
+                }
+            }
+            if (!mStarted) {
+                mLastTime = times[0];
+                mStarted = true;
+            }
+            mOut.write(action);
+            mOut.write(actionIndex);
+            mOut.write(pointerCount);
+            writeVarint(sampleCount);
+            for (int i = 0; i < pointerCount; i++) {
+                mOut.write(pointerIds[i]);
+            }
+            for (int s = 0; s < sampleCount; s++) {
+                writeVarint(times[s] - mLastTime);
+                mLastTime = times[s];
+                for (int i = 0; i < pointerCount; i++) {
+                    final int id = pointerIds[i];
+                    final int x = Math.round(xs[s * pointerCount + i] * POSITION_SCALE);
+                    final int y = Math.round(ys[s * pointerCount + i] * POSITION_SCALE);
+                    writeVarint(zigzag(x - mLastX[id]));
+                    writeVarint(zigzag(y - mLastY[id]));
+                    mLastX[id] = x;
+                    mLastY[id] = y;
+                }
+            }
+        }
+
+        /**
+         * @return number of bytes written so far, including the header
+         */
+        public int size() {
+            return mOut.size();
+        }
+
+        public byte[] toByteArray() {
+            return mOut.toByteArray();
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            mOut.writeTo(out);
+        }
+
+        /**
+         * Drop every event, keeping the buffer.
+         */
+        public void clear() {
+            mOut.reset();
+            for (int i = 0; i < MAX_POINTERS; i++) {
+                mLastX[i] = 0;
+                mLastY[i] = 0;
+            }
+            mStarted = false;
+            writeHeader();
+        }
+
+        private void writeHeader() {
+            mOut.write(MAGIC >>> 24);
+            mOut.write(MAGIC >>> 16);
+            mOut.write(MAGIC >>> 8);
+            mOut.write(MAGIC);
+            mOut.write(VERSION);
+        }
+
+        private void writeVarint(long value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("Samples must be in time order");
+            }
+            while ((value & ~0x7FL) != 0) {
+                mOut.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            mOut.write((int) value);
+        }
+
+        private static int zigzag(int value) {
+            return (value << 1) ^ (value >> 31);
+        }
+    }
+
+    /**
+     * Walks through the events of a recording. The accessors describe the current event
+     * and are valid until the next call to {@link #next()}.
+     */
+    public static final class Reader {
+        private final byte[] mData;
+        private int mPosition;
+
+        private final int[] mLastX = new int[MAX_POINTERS];
+        private final int[] mLastY = new int[MAX_POINTERS];
+        private long mTime;
+
+        private int mAction;
+        private int mActionIndex;
+        private int mPointerCount;
+        private int mSampleCount;
+        private final int[] mPointerIds = new int[MAX_POINTERS];
+        private long[] mTimes = new long[8];
+        private float[] mXs = new float[8];
+        private float[] mYs = new float[8];
+
+        /**
+         * @throws IllegalArgumentException if the data is not a recording of a known version
+         */
+        public Reader(byte[] data) {
+            mData = data;
+            if (data.length < 5 || readInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a touch recording");
+            }
+            final int version = mData[mPosition++];
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported touch recording version " + version);
+            }
+        }
+
+        public static Reader from(InputStream in) throws IOException {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return new Reader(out.toByteArray());
+        }
+
+        /**
+         * Advance to the next event.
+         *
+         * @return false at the end of the recording
+         * @throws IllegalArgumentException if the recording is truncated or corrupt
+         */
+        public boolean next() {
+            if (mPosition == mData.length) {
+                return false;
+            }
+            mAction = readByte();
+            mActionIndex = readByte();
+            mPointerCount = readByte();
+            mSampleCount = (int) readVarint();
+            if (mPointerCount > MAX_POINTERS || mSampleCount < 1) {
+                throw new IllegalArgumentException("Corrupt touch recording at " + mPosition);
+            }
+            for (int i = 0; i < mPointerCount; i++) {
+                mPointerIds[i] = readByte();
+                if (!PointerSlots.isValidPointerId(mPointerIds[i])) {
+                    throw new IllegalArgumentException("Corrupt touch recording at " + mPosition);
+                }
+            }
+            ensureCapacity(mSampleCount, mSampleCount * mPointerCount);
+            for (int s = 0; s < mSampleCount; s++) {
+                mTime += readVarint();
+                mTimes[s] = mTime;
+                for (int i = 0; i < mPointerCount; i++) {
+                    final int id = mPointerIds[i];
+                    mLastX[id] += unzigzag((int) readVarint());
+                    mLastY[id] += unzigzag((int) readVarint());
+                    mXs[s * mPointerCount + i] = mLastX[id] / POSITION_SCALE;
+                    mYs[s * mPointerCount + i] = mLastY[id] / POSITION_SCALE;
+                }
+            }
+            return true;
+        }
+
+        public int getAction() {
+            return mAction;
+        }
+
+        public int getActionIndex() {
+            return mActionIndex;
+        }
+
+        public int getPointerCount() {
+            return mPointerCount;
+        }
+
+        public int getPointerId(int pointerIndex) {
+            return mPointerIds[pointerIndex];
+        }
+
+        /**
+         * @return number of samples, the last one being the current position of the event
+         */
+        public int getSampleCount() {
+            return mSampleCount;
+        }
+
+        /**
+         * @return time of a sample in milliseconds, relative to the first sample of the recording
+         */
+        public long getSampleTime(int sample) {
+            return mTimes[sample];
+        }
+
+        public float getX(int sample, int pointerIndex) {
+            return mXs[sample * mPointerCount + pointerIndex];
+        }
+
+        public float getY(int sample, int pointerIndex) {
+            return mYs[sample * mPointerCount + pointerIndex];
+        }
+
+        /**
+         * @return time of the current position of the event
+         */
+        public long getEventTime() {
+            return mTimes[mSampleCount - 1];
+        }
+
+        private void ensureCapacity(int samples, int positions) {
+            if (mTimes.length < samples) {
+                mTimes = new long[samples];
+            }
+            if (mXs.length < positions) {
+                mXs = new float[positions];
+                mYs = new float[positions];
+            }
+        }
+
+        private int readByte() {
+            if (mPosition >= mData.length) {
+                throw new IllegalArgumentException("Truncated touch recording");
+            }
+            return mData[mPosition++] & 0xFF;
+        }
+
+        private int readInt() {
+            return readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                final int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Corrupt touch recording at " + mPosition);
+        }
+
+        private static int unzigzag(int value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+/**
+ * Preallocated ring buffer of primitive trace records. Each record is a timestamp,
+ * an event id and three int arguments. Once full, the oldest records are overwritten.
+ *
+ * <p>Not thread safe; records are expected to be written from the UI thread.</p>
+ */
+public class TraceBuffer {
+    private final int mMask;
+    private final long[] mTime;
+    private final int[] mEvent;
+    private final int[] mArg0;
+    private final int[] mArg1;
+    private final int[] mArg2;
+
+    /**
+     * Total number of records ever written, used to locate the oldest record
+     */
+    private long mWritten;
+
+    /**
+     * @param capacity Number of records to keep, rounded up to a power of two
+     */
+    public TraceBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int actual = 1;
+        while (actual < capacity) {
+            actual <<= 1;
+        }
+        mMask = actual - 1;
+        mTime = new long[actual];
+        mEvent = new int[actual];
+        mArg0 = new int[actual];
+        mArg1 = new int[actual];
+        mArg2 = new int[actual];
+    }
+
+    public void record(long timeNanos, int event, int arg0, int arg1, int arg2) {
+        final int slot = (int) (mWritten & mMask);
+        mTime[slot] = timeNanos;
+        mEvent[slot] = event;
+        mArg0[slot] = arg0;
+        mArg1[slot] = arg1;
+        mArg2[slot] = arg2;
+        mWritten++;
+    }
+
+    public void clear() {
+        mWritten = 0;
+    }
+
+    public int capacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * @return number of records currently held, at most {@link #capacity()}
+     */
+    public int size() {
+        return (int) Math.min(mWritten, mMask + 1);
+    }
+
+    /**
+     * @return number of records overwritten because the buffer was full
+     */
+    public long getDroppedCount() {
+        return mWritten - size();
+    }
+
+    // Accessors take the record index, 0 being the oldest record held.
+
+    public long getTime(int index) {
+        return mTime[slot(index)];
+    }
+
+    public int getEvent(int index) {
+        return mEvent[slot(index)];
+    }
+
+    public int getArg0(int index) {
+        return mArg0[slot(index)];
+    }
+
+    public int getArg1(int index) {
+        return mArg1[slot(index)];
+    }
+
+    public int getArg2(int index) {
+        return mArg2[slot(index)];
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+        }
+        return (int) ((mWritten - size() + index) & mMask);
+    }
+}
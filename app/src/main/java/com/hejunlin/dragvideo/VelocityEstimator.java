@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+/**
+ * Pure-Java replacement for {@link android.view.VelocityTracker}.
+ *
+ * <p>Samples are kept per pointer ID in fixed-size primitive ring buffers, so adding
+ * movements and computing velocities never allocates. Subclasses only decide how
+ * a window of samples is turned into a velocity; see {@link LeastSquares} and
+ * {@link Impulse}.</p>
+ */
+public abstract class VelocityEstimator {
+    /**
+     * Number of samples kept per pointer.
+     */
+    public static final int HISTORY_SIZE = 20;
+
+    /**
+     * Samples older than this, relative to the newest sample, are ignored.
+     */
+    private static final long HORIZON_MS = 100;
+
+    /**
+     * A gap this long between two samples means the pointer stopped in between,
+     * so older samples are ignored.
+     */
+    private static final long ASSUME_POINTER_STOPPED_MS = 40;
+
+    private static final int MAX_POINTERS = PointerSlots.MAX_POINTERS;
+
+    private final long[] mTime = new long[MAX_POINTERS * HISTORY_SIZE];
+    private final float[] mX = new float[MAX_POINTERS * HISTORY_SIZE];
+    private final float[] mY = new float[MAX_POINTERS * HISTORY_SIZE];
+    private final int[] mHead = new int[MAX_POINTERS];
+    private final int[] mCount = new int[MAX_POINTERS];
+
+    private final float[] mXVelocity = new float[MAX_POINTERS];
+    private final float[] mYVelocity = new float[MAX_POINTERS];
+
+    // Scratch window, ordered oldest to newest, handed to estimate()
+    private final float[] mWindowTime = new float[HISTORY_SIZE];
+    private final float[] mWindowPos = new float[HISTORY_SIZE];
+
+    /**
+     * Forget the samples of every pointer.
+     */
+    public void clear() {
+        for (int i = 0; i < MAX_POINTERS; i++) {
+            clear(i);
+        }
+    }
+
+    /**
+     * Forget the samples of a single pointer.
+     */
+    public void clear(int pointerId) {
+        if (!PointerSlots.isValidPointerId(pointerId)) {
+            return;
+        }
+        mHead[pointerId] = 0;
+        mCount[pointerId] = 0;
+        mXVelocity[pointerId] = 0;
+        mYVelocity[pointerId] = 0;
+    }
+
+    /**
+     * Add a position sample for a pointer. Samples must be added in time order,
+     * including the historical samples batched into a MotionEvent.
+     *
+     * @param pointerId ID of the pointer
+     * @param eventTimeMillis Time of the sample in milliseconds
+     * @param x X position
+     * @param y Y position
+     */
+    public void addMovement(int pointerId, long eventTimeMillis, float x, float y) {
+        if (!PointerSlots.isValidPointerId(pointerId)) {
+            return;
+        }
+        final int head = mHead[pointerId];
+        final int slot = pointerId * HISTORY_SIZE + head;
+        mTime[slot] = eventTimeMillis;
+        mX[slot] = x;
+        mY[slot] = y;
+        mHead[pointerId] = (head + 1) % HISTORY_SIZE;
+        if (mCount[pointerId] < HISTORY_SIZE) {
+            mCount[pointerId]++;
+        }
+    }
+
+    /**
+     * Compute the velocity of every tracked pointer, see
+     * {@link android.view.VelocityTracker#computeCurrentVelocity(int, float)}.
+     *
+     * @param units 1 for pixels per millisecond, 1000 for pixels per second
+     * @param maxVelocity Maximum absolute velocity in the given units
+     */
+    public void computeCurrentVelocity(int units, float maxVelocity) {
+        for (int id = 0; id < MAX_POINTERS; id++) {
+            final int size = fillWindowTime(id);
+            if (size < 2) {
+                mXVelocity[id] = 0;
+                mYVelocity[id] = 0;
+                continue;
+            }
+            fillWindowPos(id, size, mX);
+            mXVelocity[id] = clamp(estimate(mWindowTime, mWindowPos, size) * units, maxVelocity);
+            fillWindowPos(id, size, mY);
+            mYVelocity[id] = clamp(estimate(mWindowTime, mWindowPos, size) * units, maxVelocity);
+        }
+    }
+
+    public float getXVelocity(int pointerId) {
+        return PointerSlots.isValidPointerId(pointerId) ? mXVelocity[pointerId] : 0;
+    }
+
+    public float getYVelocity(int pointerId) {
+        return PointerSlots.isValidPointerId(pointerId) ? mYVelocity[pointerId] : 0;
+    }
+
+    /**
+     * Estimate the velocity at the newest sample.
+     *
+     * @param time Sample times in milliseconds relative to the newest sample, oldest first.
+     *             The last entry is always 0.
+     * @param pos Sample positions, oldest first
+     * @param size Number of valid samples, at least 2
+     * @return velocity in pixels per millisecond
+     */
+    protected abstract float estimate(float[] time, float[] pos, int size);
+
+    /**
+     * Copy the usable sample times of a pointer into the scratch window.
+     *
+     * @return number of usable samples
+     */
+    private int fillWindowTime(int pointerId) {
+        final int count = mCount[pointerId];
+        if (count == 0) {
+            return 0;
+        }
+        final int base = pointerId * HISTORY_SIZE;
+        final int newest = (mHead[pointerId] + HISTORY_SIZE - 1) % HISTORY_SIZE;
+        final long newestTime = mTime[base + newest];
+
+        // Walk backwards from the newest sample until the horizon or a pause.
+        int size = 1;
+        long previous = newestTime;
+        while (size < count) {
+            final long t = mTime[base + (newest - size + HISTORY_SIZE) % HISTORY_SIZE];
+            if (newestTime - t > HORIZON_MS || previous - t > ASSUME_POINTER_STOPPED_MS) {
+                break;
+            }
+            previous = t;
+            size++;
+        }
+
+        for (int i = 0; i < size; i++) {
+            final int index = (newest - (size - 1 - i) + HISTORY_SIZE) % HISTORY_SIZE;
+            mWindowTime[i] = mTime[base + index] - newestTime;
+        }
+        return size;
+    }
+
+    private void fillWindowPos(int pointerId, int size, float[] source) {
+        final int base = pointerId * HISTORY_SIZE;
+        final int newest = (mHead[pointerId] + HISTORY_SIZE - 1) % HISTORY_SIZE;
+        for (int i = 0; i < size; i++) {
+            final int index = (newest - (size - 1 - i) + HISTORY_SIZE) % HISTORY_SIZE;
+            mWindowPos[i] = source[base + index];
+        }
+    }
+
+    private static float clamp(float velocity, float maxVelocity) {
+        if (velocity > maxVelocity) return maxVelocity;
+        if (velocity < -maxVelocity) return -maxVelocity;
+        return velocity;
+    }
+
+    /**
+     * Fits a second degree polynomial to the samples and reports its slope at the newest
+     * sample. Falls back to a straight line when there are too few samples for a
+     * well-conditioned quadratic fit. This matches the platform's default strategy.
+     */
+    public static class LeastSquares extends VelocityEstimator {
+        @Override
+        protected float estimate(float[] time, float[] pos, int size) {
+            // Normal equations for pos = a + b*t + c*t^2; sums in double for stability.
+            double s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0;
+            double p0 = 0, p1 = 0, p2 = 0;
+            for (int i = 0; i < size; i++) {
+                final double t = time[i];
+                final double t2 = t * t;
+                final double p = pos[i];
+                s0 += 1;
+                s1 += t;
+                s2 += t2;
+                s3 += t2 * t;
+                s4 += t2 * t2;
+                p0 += p;
+                p1 += p * t;
+                p2 += p * t2;
+            }
+
+            if (size >= 3) {
+                final double det = s0 * (s2 * s4 - s3 * s3)
+                        - s1 * (s1 * s4 - s3 * s2)
+                        + s2 * (s1 * s3 - s2 * s2);
+                if (Math.abs(det) > 1e-6) {
+                    // Cramer's rule for the linear coefficient only.
+                    final double detB = s0 * (p1 * s4 - s3 * p2)
+                            - p0 * (s1 * s4 - s3 * s2)
+                            + s2 * (s1 * p2 - p1 * s2);
+                    return (float) (detB / det);
+                }
+            }
+
+            final double det = s0 * s2 - s1 * s1;
+            if (Math.abs(det) < 1e-6) {
+                return 0;
+            }
+            return (float) ((s0 * p1 - s1 * p0) / det);
+        }
+    }
+
+    /**
+     * Treats every pair of samples as an impulse applied to a unit mass and reports
+     * the velocity matching the accumulated kinetic energy. Less sensitive to a noisy
+     * last sample than {@link LeastSquares}.
+     */
+    public static class Impulse extends VelocityEstimator {
+        @Override
+        protected float estimate(float[] time, float[] pos, int size) {
+            if (size == 2) {
+                final float dt = time[1] - time[0];
+                return dt == 0 ? 0 : (pos[1] - pos[0]) / dt;
+            }
+            float work = 0;
+            for (int i = 1; i < size; i++) {
+                final float dt = time[i] - time[i - 1];
+                if (dt == 0) {
+                    continue;
+                }
+                final float vprev = kineticEnergyToVelocity(work);
+                final float vcurr = (pos[i] - pos[i - 1]) / dt;
+                work += (vcurr - vprev) * Math.abs(vcurr);
+                if (i == 1) {
+                    work *= 0.5f;
+                }
+            }
+            return kineticEnergyToVelocity(work);
+        }
+
+        private static float kineticEnergyToVelocity(float work) {
+            return (work < 0 ? -1f : 1f) * (float) Math.sqrt(2 * Math.abs(work));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DragMetricsTest {
+    private static final long FRAME = 16000000L;
+
+    @Test
+    public void countsFramesAndDroppedFrames() throws Exception {
+        DragMetrics metrics = new DragMetrics();
+        metrics.setFrameIntervalNanos(FRAME);
+        metrics.begin(DragMetrics.PHASE_DRAG, 0);
+        metrics.onFrame(FRAME);
+        metrics.onFrame(2 * FRAME);
+        metrics.onFrame(5 * FRAME); // two frames missed
+        metrics.onFrame(6 * FRAME);
+        metrics.end(6 * FRAME);
+
+        assertFalse(metrics.isActive());
+        assertEquals(DragMetrics.PHASE_DRAG, metrics.getPhase());
+        assertEquals(4, metrics.getFrameCount());
+        assertEquals(2, metrics.getDroppedFrames());
+        assertEquals(48f, metrics.getWorstFrameIntervalMillis(), 0.001f);
+        assertEquals(80f / 3, metrics.getMeanFrameIntervalMillis(), 0.001f);
+        assertEquals(96f, metrics.getActualDurationMillis(), 0.001f);
+    }
+
+    @Test
+    public void reportsSettleAndInputLatency() throws Exception {
+        DragMetrics metrics = new DragMetrics();
+        metrics.begin(DragMetrics.PHASE_SETTLE, 1000000L);
+        metrics.setPlannedSettleDuration(256);
+        metrics.onInputLatency(4);
+        metrics.onInputLatency(10);
+        metrics.end(301000000L);
+
+        assertEquals(256, metrics.getPlannedSettleDuration());
+        assertEquals(300f, metrics.getActualDurationMillis(), 0.001f);
+        assertEquals(7f, metrics.getMeanInputLatencyMillis(), 0.001f);
+        assertEquals(10, metrics.getWorstInputLatencyMillis());
+    }
+
+    @Test
+    public void ignoresFramesOutsideOfAPhase() throws Exception {
+        DragMetrics metrics = new DragMetrics();
+        metrics.begin(DragMetrics.PHASE_DRAG, 0);
+        metrics.end(0);
+        metrics.onFrame(FRAME);
+        metrics.onInputLatency(5);
+        assertEquals(0, metrics.getFrameCount());
+        assertEquals(0f, metrics.getMeanInputLatencyMillis(), 0f);
+    }
+}
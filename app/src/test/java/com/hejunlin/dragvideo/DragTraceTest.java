@@ -0,0 +1,26 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class DragTraceTest {
+
+    @Test
+    public void dumpWritesRecordsAndKeepsThem() throws Exception {
+        assertTrue(DragTrace.ENABLED);
+        DragTrace.record(DragTrace.EVENT_CLAMP_VERTICAL, 120, -8, 112);
+
+        StringWriter out = new StringWriter();
+        DragTrace.dump("  ", new PrintWriter(out));
+        assertTrue(out.toString().startsWith("  DragTrace records="));
+        assertTrue(out.toString().contains(" clampViewPositionVertical 120,-8,112"));
+
+        StringWriter again = new StringWriter();
+        DragTrace.dump("", new PrintWriter(again));
+        assertTrue(again.toString().contains(" clampViewPositionVertical 120,-8,112"));
+    }
+}
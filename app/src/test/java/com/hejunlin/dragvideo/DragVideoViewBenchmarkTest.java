@@ -0,0 +1,135 @@
+package com.hejunlin.dragvideo;
+
+import android.app.Activity;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures the real gesture path of {@link DragVideoView}: dispatchTouchEvent through
+ * shouldInterceptTouchEvent, processTouchEvent and dragTo, and computeScroll through
+ * continueSettling, both ending in requestLayoutLightly.
+ *
+ * <p>Each stream is replayed with {@link TouchReplayer} from a maximized player, first
+ * to warm up the JIT and then to measure, and the averages are printed as ns and bytes
+ * per event and per settle frame. The bytes are those allocated on the test thread, as
+ * counted by ThreadMXBean. Robolectric runs the framework on the JVM with instrumented
+ * classes, so the numbers are for comparing revisions, not for predicting a device.</p>
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DragVideoViewBenchmarkTest {
+    private static final int WARMUP_REPLAYS = 10;
+    private static final int MEASURED_REPLAYS = 30;
+
+    private DragVideoView mView;
+    private TouchReplayer mReplayer;
+
+    @Before
+    public void setUp() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        mView = new DragVideoView(activity);
+        mView.addView(new View(activity));
+        mView.addView(new View(activity));
+        mView.onFinishInflate();
+        activity.setContentView(mView);
+        Robolectric.flushForegroundThreadScheduler();
+        assertTrue(mView.getWidth() > 0);
+
+        mReplayer = new TouchReplayer(mView);
+    }
+
+    @Test
+    public void singlePointer() throws Exception {
+        TouchReplayer.Result result = run("single pointer", TouchGestures.drag(centerX(), y(0.05f),
+                centerX(), y(0.8f), 240, TouchReplayer.FRAME_MILLIS));
+        assertTrue(result.minimum);
+    }
+
+    @Test
+    public void twoPointers() throws Exception {
+        TouchReplayer.Result result = run("two pointers", TouchGestures.twoFingerDrag(centerX(), y(0.05f),
+                centerX(), y(0.8f), 0.1f * mView.getWidth(), 240, TouchReplayer.FRAME_MILLIS));
+        assertTrue(result.minimum);
+    }
+
+    /**
+     * Moves carry a historical sample halfway, so every 2ms move becomes two events 1ms apart
+     */
+    @Test
+    public void oneKilohertz() throws Exception {
+        TouchReplayer.Result result = run("1 kHz", TouchGestures.drag(centerX(), y(0.05f),
+                centerX(), y(0.8f), 240, 2));
+        assertTrue(result.minimum);
+        assertTrue(result.eventCount > 240);
+    }
+
+    /**
+     * A slow drag released halfway leaves the spring a long way to go
+     */
+    @Test
+    public void longSettle() throws Exception {
+        TouchReplayer.Result result = run("long settle", TouchGestures.drag(centerX(), y(0.05f),
+                centerX(), y(0.45f), 1200, TouchReplayer.FRAME_MILLIS));
+        assertEquals(CustomViewDragHelper.STATE_IDLE, result.dragState);
+        assertTrue(result.frameNanos.length > 1200 / TouchReplayer.FRAME_MILLIS + 10);
+    }
+
+    private float centerX() {
+        return mView.getWidth() / 2f;
+    }
+
+    private float y(float fraction) {
+        return fraction * mView.getHeight();
+    }
+
+    /**
+     * Replay the stream until warm, then print the averages of the measured replays.
+     *
+     * @return the result of the last replay
+     */
+    private TouchReplayer.Result run(String stream, byte[] recording) {
+        TouchReplayer.Result result = null;
+        for (int i = 0; i < WARMUP_REPLAYS; i++) {
+            result = replayMaximized(recording);
+        }
+        long events = 0;
+        long frames = 0;
+        long eventNanos = 0;
+        long eventBytes = 0;
+        long scrollNanos = 0;
+        long scrollBytes = 0;
+        for (int i = 0; i < MEASURED_REPLAYS; i++) {
+            result = replayMaximized(recording);
+            events += result.eventCount;
+            frames += result.frameNanos.length;
+            eventNanos += result.eventNanos;
+            eventBytes += result.eventBytes;
+            scrollNanos += result.scrollNanos;
+            scrollBytes += result.scrollBytes;
+        }
+        assertTrue(stream + ": no events", events > 0);
+        assertTrue(stream + ": the player never moved", result.verticalOffset > 0f);
+        System.out.println(stream + ": " + events / MEASURED_REPLAYS + " events, "
+                + eventNanos / events + " ns/event, "
+                + (result.eventBytes < 0 ? "-" : String.valueOf(eventBytes / events)) + " bytes/event, "
+                + frames / MEASURED_REPLAYS + " frames, "
+                + scrollNanos / frames + " ns/frame, "
+                + (result.scrollBytes < 0 ? "-" : String.valueOf(scrollBytes / frames)) + " bytes/frame");
+        return result;
+    }
+
+    private TouchReplayer.Result replayMaximized(byte[] recording) {
+        mView.show();
+        mReplayer.settle();
+        assertFalse(mView.isMinimum());
+        return mReplayer.replay(recording);
+    }
+}
@@ -0,0 +1,253 @@
+package com.hejunlin.dragvideo;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Counts measure, layout and invalidate calls while replaying gestures, and fails
+ * when a scenario exceeds its budget.
+ *
+ * <p>Drags and settles are expected to go through requestLayoutLightly only: no full
+ * layout of the DragVideoView, and the description list is never measured again.
+ * Moves arrive once per frame, so each frame re-measures and re-lays out the player
+ * and the description at most once for the move and once for a settle step.</p>
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DragVideoViewLayoutBudgetTest {
+    private static final int SAMPLE_MILLIS = TouchReplayer.FRAME_MILLIS;
+
+    /**
+     * Budgets for a whole scenario
+     */
+    private static final int MAX_FULL_LAYOUT_REQUESTS = 0;
+    private static final int MAX_PARENT_MEASURES = 0;
+    private static final int MAX_PARENT_LAYOUTS = 0;
+    private static final int MAX_DESC_MEASURES = 0;
+
+    /**
+     * Budgets for a single frame. The frame of the release handles the last move and
+     * the first settle step, the last settle frame may also restore a dismissed player.
+     */
+    private static final int MAX_PLAYER_MEASURES_PER_FRAME = 2;
+    private static final int MAX_PLAYER_LAYOUTS_PER_FRAME = 2;
+    private static final int MAX_DESC_LAYOUTS_PER_FRAME = 2;
+    /**
+     * One for the move, one for starting the settle, and two for the settle step
+     * (the position change and computeScroll)
+     */
+    private static final int MAX_INVALIDATES_PER_FRAME = 4;
+
+    private CountingDragVideoView mView;
+    private CountingView mPlayer;
+    private CountingView mDesc;
+    private TouchReplayer mReplayer;
+    private final FrameBudget mBudget = new FrameBudget();
+
+    @Before
+    public void setUp() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        mView = new CountingDragVideoView(activity);
+        mPlayer = new CountingView(activity);
+        mDesc = new CountingView(activity);
+        mView.addView(mPlayer);
+        mView.addView(mDesc);
+        mView.onFinishInflate();
+        activity.setContentView(mView);
+        Robolectric.flushForegroundThreadScheduler();
+        assertTrue(mView.getWidth() > 0);
+
+        mReplayer = new TouchReplayer(mView);
+        mReplayer.setFrameListener(mBudget);
+    }
+
+    @Test
+    public void maximize() throws Exception {
+        mBudget.reset();
+        mView.show();
+        mReplayer.settle();
+        assertFalse(mView.isMinimum());
+        mBudget.check("maximize");
+    }
+
+    @Test
+    public void minimize() throws Exception {
+        mView.show();
+        mReplayer.settle();
+
+        mBudget.reset();
+        mReplayer.replay(TouchGestures.drag(mView.getWidth() / 2f, 0.05f * mView.getHeight(),
+                mView.getWidth() / 2f, 0.8f * mView.getHeight(), 240, SAMPLE_MILLIS));
+        assertTrue(mView.isMinimum());
+        mBudget.check("minimize");
+    }
+
+    @Test
+    public void dismissLeft() throws Exception {
+        dismiss(0.05f);
+    }
+
+    @Test
+    public void dismissRight() throws Exception {
+        dismiss(0.95f);
+    }
+
+    /**
+     * Maximize, minimize, then drag the minimized player horizontally to the given
+     * fraction of the width.
+     */
+    private void dismiss(float toX) {
+        mView.show();
+        mReplayer.settle();
+        mReplayer.replay(TouchGestures.drag(mView.getWidth() / 2f, 0.05f * mView.getHeight(),
+                mView.getWidth() / 2f, 0.8f * mView.getHeight(), 240, SAMPLE_MILLIS));
+        assertTrue(mView.isMinimum());
+
+        float x = mPlayer.getLeft() + mPlayer.getWidth() / 2f;
+        float y = mPlayer.getTop() + mPlayer.getHeight() / 2f;
+        mBudget.reset();
+        mReplayer.replay(TouchGestures.drag(x, y, toX * mView.getWidth(), y, 160, SAMPLE_MILLIS));
+        mBudget.check(toX < 0.5f ? "dismissLeft" : "dismissRight");
+    }
+
+    /**
+     * Tracks the largest per frame counts since the last reset.
+     */
+    private class FrameBudget implements TouchReplayer.FrameListener {
+        private int mLastPlayerMeasures;
+        private int mLastPlayerLayouts;
+        private int mLastDescLayouts;
+        private int mLastInvalidates;
+
+        private int mMaxPlayerMeasures;
+        private int mMaxPlayerLayouts;
+        private int mMaxDescLayouts;
+        private int mMaxInvalidates;
+        private int mFrames;
+
+        void reset() {
+            mView.resetCounts();
+            mPlayer.resetCounts();
+            mDesc.resetCounts();
+            mLastPlayerMeasures = mLastPlayerLayouts = mLastDescLayouts = mLastInvalidates = 0;
+            mMaxPlayerMeasures = mMaxPlayerLayouts = mMaxDescLayouts = mMaxInvalidates = 0;
+            mFrames = 0;
+        }
+
+        @Override
+        public void onFrame(int frame) {
+            mMaxPlayerMeasures = Math.max(mMaxPlayerMeasures, mPlayer.mMeasures - mLastPlayerMeasures);
+            mMaxPlayerLayouts = Math.max(mMaxPlayerLayouts, mPlayer.mLayouts - mLastPlayerLayouts);
+            mMaxDescLayouts = Math.max(mMaxDescLayouts, mDesc.mLayouts - mLastDescLayouts);
+            mMaxInvalidates = Math.max(mMaxInvalidates, mView.mInvalidates - mLastInvalidates);
+            mLastPlayerMeasures = mPlayer.mMeasures;
+            mLastPlayerLayouts = mPlayer.mLayouts;
+            mLastDescLayouts = mDesc.mLayouts;
+            mLastInvalidates = mView.mInvalidates;
+            mFrames++;
+        }
+
+        void check(String scenario) {
+            assertTrue(scenario + ": no frames", mFrames > 0);
+            assertTrue(scenario + ": the player never moved", mPlayer.mLayouts > 0);
+            assertBudget(scenario, "full layout requests", mView.mLayoutRequests, MAX_FULL_LAYOUT_REQUESTS);
+            assertBudget(scenario, "DragVideoView measures", mView.mMeasures, MAX_PARENT_MEASURES);
+            assertBudget(scenario, "DragVideoView layouts", mView.mLayouts, MAX_PARENT_LAYOUTS);
+            assertBudget(scenario, "description measures", mDesc.mMeasures, MAX_DESC_MEASURES);
+            assertBudget(scenario, "player measures per frame", mMaxPlayerMeasures,
+                    MAX_PLAYER_MEASURES_PER_FRAME);
+            assertBudget(scenario, "player layouts per frame", mMaxPlayerLayouts,
+                    MAX_PLAYER_LAYOUTS_PER_FRAME);
+            assertBudget(scenario, "description layouts per frame", mMaxDescLayouts,
+                    MAX_DESC_LAYOUTS_PER_FRAME);
+            assertBudget(scenario, "invalidates per frame", mMaxInvalidates,
+                    MAX_INVALIDATES_PER_FRAME);
+        }
+    }
+
+    private static void assertBudget(String scenario, String what, int actual, int budget) {
+        if (actual > budget) {
+            fail(scenario + ": " + actual + " " + what + ", budget " + budget);
+        }
+    }
+
+    static class CountingDragVideoView extends DragVideoView {
+        int mLayoutRequests;
+        int mMeasures;
+        int mLayouts;
+        int mInvalidates;
+
+        CountingDragVideoView(Context context) {
+            super(context);
+        }
+
+        void resetCounts() {
+            mLayoutRequests = mMeasures = mLayouts = mInvalidates = 0;
+        }
+
+        @Override
+        public void requestLayout() {
+            mLayoutRequests++;
+            super.requestLayout();
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            mMeasures++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int l, int t, int r, int b) {
+            mLayouts++;
+            super.onLayout(changed, l, t, r, b);
+        }
+
+        @Override
+        public void invalidate() {
+            mInvalidates++;
+            super.invalidate();
+        }
+
+        @Override
+        public void postInvalidateOnAnimation() {
+            mInvalidates++;
+            super.postInvalidateOnAnimation();
+        }
+    }
+
+    static class CountingView extends View {
+        int mMeasures;
+        int mLayouts;
+
+        CountingView(Context context) {
+            super(context);
+        }
+
+        void resetCounts() {
+            mMeasures = mLayouts = 0;
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            mMeasures++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+            mLayouts++;
+            super.onLayout(changed, left, top, right, bottom);
+        }
+    }
+}
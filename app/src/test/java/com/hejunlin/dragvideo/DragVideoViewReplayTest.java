@@ -0,0 +1,105 @@
+package com.hejunlin.dragvideo;
+
+import android.app.Activity;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DragVideoViewReplayTest {
+    private static final int SAMPLE_MILLIS = 8;
+
+    private DragVideoView mView;
+    private TouchReplayer mReplayer;
+    private int mDisappearDirect;
+    private final DragVideoView.Callback mCallback = new DragVideoView.Callback() {
+        @Override
+        public void onDisappear(int direct) {
+            mDisappearDirect = direct;
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        mView = new DragVideoView(activity);
+        mView.addView(new View(activity));
+        mView.addView(new View(activity));
+        mView.onFinishInflate();
+        mView.setCallback(mCallback);
+        activity.setContentView(mView);
+        Robolectric.flushForegroundThreadScheduler();
+        assertTrue(mView.getWidth() > 0);
+
+        mReplayer = new TouchReplayer(mView);
+        mView.show();
+        TouchReplayer.Result result = mReplayer.settle();
+        assertFalse(result.minimum);
+        assertEquals(0f, result.verticalOffset, 0.01f);
+    }
+
+    @Test
+    public void dragDownMinimizes() throws Exception {
+        TouchReplayer.Result result = mReplayer.replay(drag(0.5f, 0.05f, 0.5f, 0.8f, 240));
+        assertTrue(result.minimum);
+        assertEquals(1f, result.verticalOffset, 0.01f);
+        assertEquals(CustomViewDragHelper.STATE_IDLE, result.dragState);
+        assertTrue(result.frameNanos.length > 240 / TouchReplayer.FRAME_MILLIS);
+    }
+
+    @Test
+    public void shortDragRestores() throws Exception {
+        TouchReplayer.Result result = mReplayer.replay(drag(0.5f, 0.05f, 0.5f, 0.1f, 2000));
+        assertFalse(result.minimum);
+        assertEquals(0f, result.verticalOffset, 0.01f);
+    }
+
+    @Test
+    public void dragUpMaximizes() throws Exception {
+        mReplayer.replay(drag(0.5f, 0.05f, 0.5f, 0.8f, 240));
+
+        View player = mView.getChildAt(0);
+        float x = (player.getLeft() + player.getWidth() / 2f) / mView.getWidth();
+        float y = (player.getTop() + player.getHeight() / 2f) / mView.getHeight();
+        TouchReplayer.Result result = mReplayer.replay(drag(x, y, x, 0.1f, 240));
+        assertFalse(result.minimum);
+        assertEquals(0f, result.verticalOffset, 0.01f);
+    }
+
+    @Test
+    public void flingLeftDismisses() throws Exception {
+        mReplayer.replay(drag(0.5f, 0.05f, 0.5f, 0.8f, 240));
+
+        View player = mView.getChildAt(0);
+        float x = (player.getLeft() + player.getWidth() / 2f) / mView.getWidth();
+        float y = (player.getTop() + player.getHeight() / 2f) / mView.getHeight();
+        mReplayer.replay(drag(x, y, 0.05f, y, 160));
+        assertEquals(DragVideoView.SLIDE_TO_LEFT, mDisappearDirect);
+    }
+
+    @Test
+    public void recorderCapturesReplayedStream() throws Exception {
+        byte[] recording = drag(0.5f, 0.05f, 0.5f, 0.8f, 240);
+        TouchRecorder recorder = new TouchRecorder();
+        mView.setTouchRecorder(recorder);
+        mReplayer.replay(recording);
+        mView.setTouchRecorder(null);
+        assertArrayEquals(TouchReplayer.flatten(recording), recorder.toByteArray());
+    }
+
+    /**
+     * A drag between two points given as fractions of the view size.
+     */
+    private byte[] drag(float fromX, float fromY, float toX, float toY, int durationMillis) {
+        return TouchGestures.drag(fromX * mView.getWidth(), fromY * mView.getHeight(),
+                toX * mView.getWidth(), toY * mView.getHeight(), durationMillis, SAMPLE_MILLIS);
+    }
+}
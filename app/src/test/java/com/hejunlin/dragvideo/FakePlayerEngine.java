@@ -0,0 +1,251 @@
+package com.hejunlin.dragvideo;
+
+import android.view.Surface;
+
+import java.io.IOException;
+
+/**
+ * {@link PlayerEngine} with scripted latencies on a {@link VirtualScheduler}.
+ *
+ * <p>Blocking calls spend their latency on the scheduler clock, asynchronous ones
+ * deliver their callback after it. The playback position advances with the clock
+ * while playing.</p>
+ */
+final class FakePlayerEngine implements PlayerEngine {
+
+    /**
+     * Latencies and results shared by the engines of a {@link Factory}.
+     */
+    static final class Script {
+        long openMillis;
+        long prepareMillis;
+        long startMillis;
+        long seekMillis;
+        int videoWidth = 1280;
+        int videoHeight = 720;
+        boolean failOpen;
+        boolean failPrepare;
+
+        /**
+         * Latencies in the range of a local MediaPlayer source.
+         */
+        static Script typical() {
+            Script script = new Script();
+            script.openMillis = 30;
+            script.prepareMillis = 200;
+            script.startMillis = 5;
+            script.seekMillis = 40;
+            return script;
+        }
+    }
+
+    static final class Factory implements PlayerEngine.Factory {
+        final VirtualScheduler scheduler;
+        final Script script;
+        int created;
+        int released;
+        FakePlayerEngine last;
+
+        Factory(VirtualScheduler scheduler, Script script) {
+            this.scheduler = scheduler;
+            this.script = script;
+        }
+
+        @Override
+        public PlayerEngine create() {
+            created++;
+            last = new FakePlayerEngine(this);
+            return last;
+        }
+
+        /**
+         * @return a pipeline running its worker, callbacks and clock on the scheduler
+         */
+        PlayerPipeline newPipeline() {
+            return new PlayerPipeline(this, scheduler, scheduler, scheduler);
+        }
+
+        /**
+         * @return a pool factory that prepares a new pipeline for every key
+         */
+        PrewarmPool.Factory<PlayerPipeline> prewarming() {
+            return new PrewarmPool.Factory<PlayerPipeline>() {
+                @Override
+                public PlayerPipeline create(int key) {
+                    PlayerPipeline pipeline = newPipeline();
+                    pipeline.prepare();
+                    return pipeline;
+                }
+
+                @Override
+                public void release(PlayerPipeline pipeline) {
+                    pipeline.release();
+                }
+
+                @Override
+                public long sizeOf(PlayerPipeline pipeline) {
+                    return pipeline.estimateMemoryBytes();
+                }
+            };
+        }
+    }
+
+    private final Factory mFactory;
+    private final VirtualScheduler mScheduler;
+    private final Script mScript;
+    private Listener mListener;
+
+    private boolean mOpened;
+    private boolean mPrepared;
+    private boolean mPlaying;
+    private boolean mLooping;
+    private boolean mReleased;
+    private Surface mSurface;
+    private int mPosition;
+    private long mPlayStartTime;
+    private int mStartCount;
+
+    private FakePlayerEngine(Factory factory) {
+        mFactory = factory;
+        mScheduler = factory.scheduler;
+        mScript = factory.script;
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    @Override
+    public void open() throws IOException {
+        checkNotReleased();
+        mScheduler.busy(mScript.openMillis);
+        if (mScript.failOpen) {
+            throw new IOException("Scripted open failure");
+        }
+        mOpened = true;
+    }
+
+    @Override
+    public void prepareAsync() {
+        checkNotReleased();
+        if (!mOpened) {
+            throw new IllegalStateException("prepareAsync before open");
+        }
+        mScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (mReleased) {
+                    return;
+                }
+                if (mScript.failPrepare) {
+                    mListener.onError(FakePlayerEngine.this, 1, 0);
+                    return;
+                }
+                mPrepared = true;
+                mListener.onVideoSizeChanged(FakePlayerEngine.this, mScript.videoWidth,
+                        mScript.videoHeight);
+                mListener.onPrepared(FakePlayerEngine.this);
+            }
+        }, mScript.prepareMillis);
+    }
+
+    @Override
+    public void start() {
+        checkPrepared();
+        mScheduler.busy(mScript.startMillis);
+        if (!mPlaying) {
+            mPlaying = true;
+            mPlayStartTime = mScheduler.uptimeMillis();
+            mStartCount++;
+        }
+    }
+
+    @Override
+    public void pause() {
+        checkPrepared();
+        mPosition = getCurrentPosition();
+        mPlaying = false;
+    }
+
+    @Override
+    public boolean isPlaying() {
+        return mPlaying;
+    }
+
+    @Override
+    public void seekTo(final int positionMillis) {
+        checkPrepared();
+        mScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (mReleased) {
+                    return;
+                }
+                mPosition = positionMillis;
+                mPlayStartTime = mScheduler.uptimeMillis();
+                mListener.onSeekComplete(FakePlayerEngine.this);
+            }
+        }, mScript.seekMillis);
+    }
+
+    @Override
+    public int getCurrentPosition() {
+        if (!mPlaying) {
+            return mPosition;
+        }
+        return mPosition + (int) (mScheduler.uptimeMillis() - mPlayStartTime);
+    }
+
+    @Override
+    public void setLooping(boolean looping) {
+        mLooping = looping;
+    }
+
+    @Override
+    public void setSurface(Surface surface) {
+        checkNotReleased();
+        mSurface = surface;
+    }
+
+    @Override
+    public void release() {
+        checkNotReleased();
+        mReleased = true;
+        mPlaying = false;
+        mFactory.released++;
+    }
+
+    boolean isPrepared() {
+        return mPrepared;
+    }
+
+    boolean isLooping() {
+        return mLooping;
+    }
+
+    boolean isReleased() {
+        return mReleased;
+    }
+
+    Surface getSurface() {
+        return mSurface;
+    }
+
+    int getStartCount() {
+        return mStartCount;
+    }
+
+    private void checkNotReleased() {
+        if (mReleased) {
+            throw new IllegalStateException("Engine already released");
+        }
+    }
+
+    private void checkPrepared() {
+        checkNotReleased();
+        if (!mPrepared) {
+            throw new IllegalStateException("Engine not prepared");
+        }
+    }
+}
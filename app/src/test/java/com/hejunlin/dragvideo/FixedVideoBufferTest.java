@@ -0,0 +1,35 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FixedVideoBufferTest {
+
+    @Test
+    public void sameAspectRatioNeedsNoTransform() throws Exception {
+        float[] fit = new float[4];
+        FixedVideoBuffer.computeFit(1280, 720, 640, 360, fit);
+        assertEquals(1f, fit[0], 0.001f);
+        assertEquals(1f, fit[1], 0.001f);
+        assertEquals(0f, fit[2], 0.001f);
+        assertEquals(0f, fit[3], 0.001f);
+    }
+
+    @Test
+    public void narrowVideoIsPillarboxed() throws Exception {
+        float[] fit = new float[4];
+        FixedVideoBuffer.computeFit(640, 480, 1600, 900, fit);
+        assertEquals(0.75f, fit[0], 0.001f);
+        assertEquals(1f, fit[1], 0.001f);
+        assertEquals(200f, fit[2], 0.001f);
+        assertEquals(0f, fit[3], 0.001f);
+    }
+
+    @Test
+    public void unknownSizeIsIdentity() throws Exception {
+        float[] fit = new float[4];
+        FixedVideoBuffer.computeFit(0, 0, 1080, 607, fit);
+        assertArrayEquals(new float[]{1f, 1f, 0f, 0f}, fit, 0f);
+    }
+}
@@ -0,0 +1,91 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameStatsTest {
+
+    private static final long MS = 1000000L;
+    private static final long CONTENT_FRAME = 1000000000L / 30;
+    private static final long VSYNC = 1000000000L / 60;
+
+    @Test
+    public void countsFramesAndFpsPerState() throws Exception {
+        FrameStats stats = new FrameStats();
+        stats.start(0L);
+        long now = 0L;
+        for (int i = 0; i < 30; i++) {
+            now += CONTENT_FRAME;
+            stats.onFrameUpdated(now);
+        }
+        stats.setState(CustomViewDragHelper.STATE_DRAGGING, now);
+
+        assertEquals(30, stats.getFrameCount(CustomViewDragHelper.STATE_IDLE));
+        assertEquals(30f, stats.getFps(CustomViewDragHelper.STATE_IDLE), 0.1f);
+        assertEquals(0, stats.getLostFrames(CustomViewDragHelper.STATE_IDLE));
+        assertEquals(0, stats.getFrameCount(CustomViewDragHelper.STATE_DRAGGING));
+        // 33ms gaps fall into the 30-40ms bucket
+        assertEquals(29, stats.getGapCount(CustomViewDragHelper.STATE_IDLE, 3));
+    }
+
+    @Test
+    public void gapWhileUiKeepsDrawingIsADecoderStall() throws Exception {
+        FrameStats stats = new FrameStats();
+        stats.start(0L);
+        stats.setState(CustomViewDragHelper.STATE_DRAGGING, 0L);
+        stats.onFrameUpdated(0L);
+        for (long t = VSYNC; t < 100 * MS; t += VSYNC) {
+            stats.onUiFrame(t);
+        }
+        stats.onFrameUpdated(100 * MS);
+
+        assertEquals(2, stats.getLostFrames(CustomViewDragHelper.STATE_DRAGGING));
+        assertEquals(1, stats.getDecoderStalls(CustomViewDragHelper.STATE_DRAGGING));
+        assertEquals(0, stats.getUiStalls(CustomViewDragHelper.STATE_DRAGGING));
+    }
+
+    @Test
+    public void gapWithoutUiFramesIsAUiStall() throws Exception {
+        FrameStats stats = new FrameStats();
+        stats.start(0L);
+        stats.setState(CustomViewDragHelper.STATE_SETTLING, 0L);
+        stats.onUiFrame(0L);
+        stats.onFrameUpdated(0L);
+        stats.onUiFrame(90 * MS);
+        stats.onFrameUpdated(100 * MS);
+
+        assertEquals(1, stats.getUiStalls(CustomViewDragHelper.STATE_SETTLING));
+        assertEquals(0, stats.getDecoderStalls(CustomViewDragHelper.STATE_SETTLING));
+        assertEquals(100f, stats.getWorstGapMillis(CustomViewDragHelper.STATE_SETTLING), 0.01f);
+    }
+
+    @Test
+    public void idleGapsAreNotAttributed() throws Exception {
+        FrameStats stats = new FrameStats();
+        stats.start(0L);
+        stats.onUiFrame(0L);
+        stats.onFrameUpdated(0L);
+        stats.onFrameUpdated(200 * MS);
+
+        assertFalse(stats.isTrackingUiFrames());
+        assertEquals(5, stats.getLostFrames(CustomViewDragHelper.STATE_IDLE));
+        assertEquals(0, stats.getDecoderStalls(CustomViewDragHelper.STATE_IDLE));
+        assertEquals(0, stats.getUiStalls(CustomViewDragHelper.STATE_IDLE));
+    }
+
+    @Test
+    public void stoppedStatsIgnoreUpdates() throws Exception {
+        FrameStats stats = new FrameStats();
+        stats.start(0L);
+        stats.onFrameUpdated(10 * MS);
+        stats.stop(20 * MS);
+        stats.onFrameUpdated(5000 * MS);
+        stats.start(6000 * MS);
+        stats.onFrameUpdated(6010 * MS);
+
+        assertEquals(2, stats.getFrameCount(CustomViewDragHelper.STATE_IDLE));
+        assertEquals(0, stats.getLostFrames(CustomViewDragHelper.STATE_IDLE));
+        assertEquals(30 * MS, stats.getDurationNanos(CustomViewDragHelper.STATE_IDLE));
+    }
+}
@@ -0,0 +1,80 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HitGridTest {
+
+    @Test
+    public void findsTopmostItemAndWalksDown() throws Exception {
+        HitGrid grid = new HitGrid();
+        grid.reset(800, 800, 3);
+        grid.set(0, 0, 0, 800, 800);
+        grid.set(1, 100, 100, 300, 300);
+        grid.set(2, 200, 200, 400, 400);
+
+        assertEquals(2, grid.findTopItemAt(250, 250, 3));
+        assertEquals(1, grid.findTopItemAt(250, 250, 2));
+        assertEquals(0, grid.findTopItemAt(250, 250, 1));
+        assertEquals(-1, grid.findTopItemAt(250, 250, 0));
+        assertEquals(0, grid.findTopItemAt(700, 700, 3));
+    }
+
+    @Test
+    public void movingAnItemUpdatesItsCells() throws Exception {
+        HitGrid grid = new HitGrid();
+        grid.reset(800, 800, 2);
+        grid.set(1, 0, 0, 100, 100);
+        assertEquals(1, grid.findTopItemAt(50, 50, 2));
+
+        grid.set(1, 600, 600, 700, 700);
+        assertEquals(-1, grid.findTopItemAt(50, 50, 2));
+        assertEquals(1, grid.findTopItemAt(650, 650, 2));
+
+        grid.set(1, 0, 0, 0, 0);
+        assertEquals(-1, grid.findTopItemAt(650, 650, 2));
+    }
+
+    @Test
+    public void itemsOutsideTheGridAreStillFound() throws Exception {
+        HitGrid grid = new HitGrid();
+        grid.reset(800, 800, 1);
+        grid.set(0, -300, 700, 100, 900);
+        assertEquals(0, grid.findTopItemAt(-10, 750, 1));
+        assertEquals(0, grid.findTopItemAt(50, 850, 1));
+        assertEquals(0, grid.findTopItemAt(50, 750, 1));
+    }
+
+    @Test
+    public void matchesLinearScanWithManyItems() throws Exception {
+        final int count = 150;
+        HitGrid grid = new HitGrid();
+        grid.reset(1080, 1920, count);
+        int[][] rects = new int[count][];
+        Random random = new Random(42);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < count; i++) {
+                int left = random.nextInt(1300) - 100;
+                int top = random.nextInt(2100) - 100;
+                rects[i] = new int[]{left, top, left + 20 + random.nextInt(300),
+                        top + 20 + random.nextInt(300)};
+                grid.set(i, rects[i][0], rects[i][1], rects[i][2], rects[i][3]);
+            }
+            for (int q = 0; q < 2000; q++) {
+                int x = random.nextInt(1200) - 60;
+                int y = random.nextInt(2040) - 60;
+                int expected = -1;
+                for (int i = count - 1; i >= 0; i--) {
+                    if (x >= rects[i][0] && x < rects[i][2] && y >= rects[i][1] && y < rects[i][3]) {
+                        expected = i;
+                        break;
+                    }
+                }
+                assertEquals("at " + x + "," + y, expected, grid.findTopItemAt(x, y, count));
+            }
+        }
+    }
+}
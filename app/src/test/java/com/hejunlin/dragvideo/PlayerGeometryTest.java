@@ -0,0 +1,68 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PlayerGeometryTest {
+    private static final float VIDEO_RATIO = 16f / 9f;
+
+    @Test
+    public void endpointsMatchMaximizedAndMinimizedPlayer() throws Exception {
+        PlayerGeometry geometry = new PlayerGeometry();
+        assertFalse(geometry.isReady());
+        assertTrue(geometry.setup(1080, 540, VIDEO_RATIO, 1080, 1920, 10));
+
+        int range = geometry.getVerticalRange();
+        assertEquals(1920 - 303, range);
+        assertEquals(1080, geometry.getWidth(0));
+        assertEquals(607, geometry.getHeight(0));
+        assertEquals(0, geometry.getLeft(0));
+        assertEquals(10, geometry.getTop(0));
+        assertEquals(540, geometry.getWidth(range));
+        assertEquals(303, geometry.getHeight(range));
+        assertEquals(540, geometry.getLeft(range));
+        assertEquals(10 + range, geometry.getTop(range));
+    }
+
+    @Test
+    public void sizeNeverGrowsWhileMovingDown() throws Exception {
+        PlayerGeometry geometry = new PlayerGeometry();
+        geometry.setup(1437, 718, VIDEO_RATIO, 1437, 2392, 0);
+        for (int position = 1; position <= geometry.getVerticalRange(); position++) {
+            assertTrue(geometry.getWidth(position) <= geometry.getWidth(position - 1));
+            assertTrue(geometry.getHeight(position) <= geometry.getHeight(position - 1));
+            assertEquals(1437, geometry.getLeft(position) + geometry.getWidth(position));
+        }
+    }
+
+    @Test
+    public void positionOfRoundsAndClamps() throws Exception {
+        PlayerGeometry geometry = new PlayerGeometry();
+        geometry.setup(1080, 540, VIDEO_RATIO, 1080, 1920, 0);
+        int range = geometry.getVerticalRange();
+        assertEquals(0, geometry.positionOf(-0.5f));
+        assertEquals(range, geometry.positionOf(1.5f));
+        for (int top = 0; top <= range; top += 97) {
+            assertEquals(top, geometry.positionOf((float) top / range));
+        }
+    }
+
+    @Test
+    public void rebuildsOnlyWhenSizesChange() throws Exception {
+        PlayerGeometry geometry = new PlayerGeometry();
+        assertTrue(geometry.setup(1080, 540, VIDEO_RATIO, 1080, 1920, 0));
+        assertFalse(geometry.setup(1080, 540, VIDEO_RATIO, 1080, 1920, 0));
+        assertTrue(geometry.setup(1920, 960, VIDEO_RATIO, 1920, 1080, 0));
+        assertEquals(1080 - 540, geometry.getVerticalRange());
+        assertEquals(1920, geometry.getWidth(0));
+    }
+
+    @Test
+    public void playerTallerThanViewHasNoRange() throws Exception {
+        PlayerGeometry geometry = new PlayerGeometry();
+        geometry.setup(1080, 540, VIDEO_RATIO, 1080, 200, 0);
+        assertEquals(0, geometry.getVerticalRange());
+        assertEquals(540, geometry.getWidth(0));
+    }
+}
@@ -0,0 +1,134 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PlayerPipelineTest {
+
+    private VirtualScheduler mScheduler;
+    private FakePlayerEngine.Script mScript;
+    private FakePlayerEngine.Factory mFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        mScheduler = new VirtualScheduler();
+        mScript = FakePlayerEngine.Script.typical();
+        mFactory = new FakePlayerEngine.Factory(mScheduler, mScript);
+    }
+
+    private PlayerPipeline newPipeline() {
+        return mFactory.newPipeline();
+    }
+
+    @Test
+    public void coldStartWaitsForCreateAndPrepare() throws Exception {
+        PlayerPipeline pipeline = newPipeline();
+        pipeline.setLooping(true);
+        pipeline.start();
+        mScheduler.runUntilIdle();
+
+        assertEquals(30, pipeline.getStageDuration(PlayerPipeline.STAGE_CREATE));
+        assertEquals(200, pipeline.getStageDuration(PlayerPipeline.STAGE_PREPARE));
+        assertEquals(235, pipeline.getStageDuration(PlayerPipeline.STAGE_START));
+        assertEquals(230, pipeline.getStageEndTime(PlayerPipeline.STAGE_PREPARE));
+        assertTrue(mFactory.last.isPlaying());
+        assertTrue(mFactory.last.isLooping());
+        assertEquals(1280, pipeline.getVideoWidth());
+        assertEquals(720, pipeline.getVideoHeight());
+    }
+
+    @Test
+    public void prewarmedPipelineOnlyPaysStart() throws Exception {
+        PrewarmPool<PlayerPipeline> pool = new PrewarmPool<>(mFactory.prewarming(), 2, Long.MAX_VALUE);
+        pool.warm(7);
+        mScheduler.advanceBy(1000);
+
+        PlayerPipeline pipeline = pool.obtain(7);
+        pipeline.start();
+        mScheduler.runUntilIdle();
+        assertEquals(1, mFactory.created);
+        assertEquals(5, pipeline.getStageDuration(PlayerPipeline.STAGE_START));
+    }
+
+    @Test
+    public void pauseCancelsQueuedStart() throws Exception {
+        PlayerPipeline pipeline = newPipeline();
+        pipeline.start();
+        mScheduler.advanceBy(100);
+        pipeline.pause();
+        mScheduler.runUntilIdle();
+
+        assertTrue(mFactory.last.isPrepared());
+        assertFalse(mFactory.last.isPlaying());
+        assertEquals(-1, pipeline.getStageDuration(PlayerPipeline.STAGE_START));
+    }
+
+    @Test
+    public void seeksBeforePrepareCollapseToTheLast() throws Exception {
+        PlayerPipeline pipeline = newPipeline();
+        pipeline.prepare();
+        pipeline.seekTo(1000);
+        pipeline.seekTo(3000);
+        mScheduler.runUntilIdle();
+
+        assertEquals(3000, mFactory.last.getCurrentPosition());
+        assertEquals(270, pipeline.getStageDuration(PlayerPipeline.STAGE_SEEK));
+    }
+
+    @Test
+    public void seekDuringSeekRunsAfterIt() throws Exception {
+        PlayerPipeline pipeline = newPipeline();
+        pipeline.prepare();
+        mScheduler.runUntilIdle();
+        pipeline.seekTo(1000);
+        mScheduler.advanceBy(10);
+        pipeline.seekTo(2000);
+        mScheduler.runUntilIdle();
+
+        assertEquals(2000, mFactory.last.getCurrentPosition());
+        assertEquals(80, pipeline.getStageDuration(PlayerPipeline.STAGE_SEEK));
+    }
+
+    @Test
+    public void prepareErrorDropsStart() throws Exception {
+        mScript.failPrepare = true;
+        PlayerPipeline pipeline = newPipeline();
+        final int[] error = new int[1];
+        pipeline.setListener(new PlayerPipeline.Listener() {
+            @Override
+            public void onVideoSizeChanged(int width, int height) {
+            }
+
+            @Override
+            public void onStageFinished(int stage, long durationMillis) {
+            }
+
+            @Override
+            public void onError(int what, int extra) {
+                error[0] = what;
+            }
+        });
+        pipeline.start();
+        mScheduler.runUntilIdle();
+
+        assertFalse(mFactory.last.isPlaying());
+        assertEquals(-1, pipeline.getStageDuration(PlayerPipeline.STAGE_START));
+        assertEquals(1, error[0]);
+    }
+
+    @Test
+    public void releaseIgnoresLaterCalls() throws Exception {
+        PlayerPipeline pipeline = newPipeline();
+        pipeline.prepare();
+        pipeline.release();
+        pipeline.start();
+        pipeline.seekTo(500);
+        mScheduler.runUntilIdle();
+
+        assertEquals(1, mFactory.created);
+        assertEquals(1, mFactory.released);
+        assertEquals(0, mFactory.last.getStartCount());
+    }
+}
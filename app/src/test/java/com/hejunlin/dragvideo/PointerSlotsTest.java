@@ -0,0 +1,80 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class PointerSlotsTest {
+
+    @Test
+    public void tracksEveryAddressablePointerId() throws Exception {
+        PointerSlots slots = new PointerSlots();
+        for (int id = 0; id < PointerSlots.MAX_POINTERS; id++) {
+            slots.saveInitialMotion(id, id, -id, 0);
+        }
+        assertEquals(-1, slots.getPointersDown());
+        assertEquals(31f, slots.getInitialMotionX(31), 0f);
+
+        slots.saveLastMotion(31, 100f, 200f);
+        assertEquals(100f, slots.getLastMotionX(31), 0f);
+        assertEquals(-31f, slots.getInitialMotionY(31), 0f);
+
+        slots.clear(31);
+        assertFalse(slots.isPointerDown(31));
+        assertTrue(slots.isPointerDown(30));
+
+        slots.clear();
+        assertEquals(0, slots.getPointersDown());
+        assertEquals(0f, slots.getLastMotionX(30), 0f);
+    }
+
+    @Test
+    public void ignoresPointerIdsOutsideOfTheMask() throws Exception {
+        PointerSlots slots = new PointerSlots();
+        slots.saveInitialMotion(PointerSlots.MAX_POINTERS, 1f, 1f, 0);
+        slots.saveInitialMotion(-1, 1f, 1f, 0);
+        assertEquals(0, slots.getPointersDown());
+        assertFalse(slots.isPointerDown(PointerSlots.MAX_POINTERS));
+    }
+
+    @Test
+    public void recordingMotionDoesNotAllocate() throws Exception {
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeAllocationCounting(bean);
+
+        PointerSlots slots = new PointerSlots();
+        // Warm up so that class loading and JIT don't show up in the measurement.
+        runGestures(slots, 20000);
+
+        long threadId = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(threadId);
+        runGestures(slots, 20000);
+        long after = bean.getThreadAllocatedBytes(threadId);
+
+        // Allow for the bookkeeping of the measurement itself.
+        assertTrue("allocated " + (after - before) + " bytes", after - before < 1024);
+    }
+
+    private static void runGestures(PointerSlots slots, int count) {
+        for (int i = 0; i < count; i++) {
+            int id = i & (PointerSlots.MAX_POINTERS - 1);
+            slots.saveInitialMotion(id, i, i, 0);
+            slots.saveLastMotion(id, i + 1, i + 1);
+            if ((i & 7) == 0) {
+                slots.clear(id);
+            }
+            if ((i & 63) == 0) {
+                slots.clear();
+            }
+        }
+    }
+
+    private static void assumeAllocationCounting(com.sun.management.ThreadMXBean bean) {
+        assumeTrue(bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+    }
+}
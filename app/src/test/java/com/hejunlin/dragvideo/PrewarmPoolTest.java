@@ -0,0 +1,195 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PrewarmPoolTest {
+
+    /**
+     * Values are the keys, each value costs key * 10 bytes.
+     */
+    private static class RecordingFactory implements PrewarmPool.Factory<Integer> {
+        final List<Integer> created = new ArrayList<>();
+        final List<Integer> released = new ArrayList<>();
+
+        @Override
+        public Integer create(int key) {
+            created.add(key);
+            return key;
+        }
+
+        @Override
+        public void release(Integer value) {
+            released.add(value);
+        }
+
+        @Override
+        public long sizeOf(Integer value) {
+            return value * 10L;
+        }
+    }
+
+    @Test
+    public void warmCreatesOnce() throws Exception {
+        RecordingFactory factory = new RecordingFactory();
+        PrewarmPool<Integer> pool = new PrewarmPool<>(factory, 2, Long.MAX_VALUE);
+        assertTrue(pool.warm(1));
+        assertFalse(pool.warm(1));
+        assertEquals(1, factory.created.size());
+        assertTrue(pool.contains(1));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBeyondEntryBudget() throws Exception {
+        RecordingFactory factory = new RecordingFactory();
+        PrewarmPool<Integer> pool = new PrewarmPool<>(factory, 2, Long.MAX_VALUE);
+        pool.warm(1);
+        pool.warm(2);
+        pool.warm(1);
+        pool.warm(3);
+        assertEquals(2, pool.size());
+        assertTrue(pool.contains(1));
+        assertTrue(pool.contains(3));
+        assertEquals(1, factory.released.size());
+        assertEquals(Integer.valueOf(2), factory.released.get(0));
+    }
+
+    @Test
+    public void evictsBeyondByteBudgetButKeepsNewest() throws Exception {
+        RecordingFactory factory = new RecordingFactory();
+        PrewarmPool<Integer> pool = new PrewarmPool<>(factory, 10, 50);
+        pool.warm(2);
+        pool.warm(3);
+        assertEquals(50, pool.getBytes());
+        pool.warm(4);
+        assertFalse(pool.contains(2));
+        assertFalse(pool.contains(3));
+        assertTrue(pool.contains(4));
+        assertEquals(40, pool.getBytes());
+    }
+
+    @Test
+    public void valueOverByteBudgetIsNotPooled() throws Exception {
+        RecordingFactory factory = new RecordingFactory();
+        PrewarmPool<Integer> pool = new PrewarmPool<>(factory, 10, 50);
+        pool.warm(2);
+        assertFalse(pool.warm(6));
+        assertFalse(pool.contains(6));
+        assertEquals(Integer.valueOf(6), factory.released.get(0));
+        // Pooled values are not evicted for it
+        assertTrue(pool.contains(2));
+        assertEquals(1, factory.released.size());
+    }
+
+    @Test
+    public void putOverByteBudgetReleasesOnlyThatValue() throws Exception {
+        RecordingFactory factory = new RecordingFactory();
+        PrewarmPool<Integer> pool = new PrewarmPool<>(factory, 10, 50);
+        pool.warm(2);
+        pool.put(6, 6);
+        assertFalse(pool.contains(6));
+        assertTrue(pool.contains(2));
+        assertEquals(1, factory.released.size());
+        assertEquals(Integer.valueOf(6), factory.released.get(0));
+    }
+
+    @Test
+    public void valuesInUseCountAgainstBudgets() throws Exception {
+        RecordingFactory factory = new RecordingFactory();
+        PrewarmPool<Integer> pool = new PrewarmPool<>(factory, 2, 100);
+        final List<Integer> inUse = new ArrayList<>();
+        pool.setInUse(new PrewarmPool.InUse<Integer>() {
+            @Override
+            public int size() {
+                return inUse.size();
+            }
+
+            @Override
+            public Integer get(int index) {
+                return inUse.get(index);
+            }
+        });
+        pool.warm(1);
+        pool.warm(2);
+
+        inUse.add(5);
+        pool.trim();
+        assertFalse(pool.contains(1));
+        assertTrue(pool.contains(2));
+        // One entry is left next to the value in use
+        pool.warm(3);
+        assertFalse(pool.contains(2));
+        assertTrue(pool.contains(3));
+        // Bytes left next to the value in use
+        assertFalse(pool.warm(6));
+
+        inUse.add(4);
+        pool.trim();
+        assertEquals(0, pool.size());
+        assertFalse(pool.warm(1));
+        pool.put(3, 3);
+        assertEquals(0, pool.size());
+        assertEquals(5, factory.released.size());
+    }
+
+    @Test
+    public void obtainTakesWarmValueOrCreates() throws Exception {
+        RecordingFactory factory = new RecordingFactory();
+        PrewarmPool<Integer> pool = new PrewarmPool<>(factory, 2, Long.MAX_VALUE);
+        pool.warm(5);
+        assertEquals(Integer.valueOf(5), pool.obtain(5));
+        assertFalse(pool.contains(5));
+        assertEquals(1, factory.created.size());
+
+        assertEquals(Integer.valueOf(6), pool.obtain(6));
+        assertEquals(2, factory.created.size());
+        assertTrue(factory.released.isEmpty());
+    }
+
+    @Test
+    public void cancelReleases() throws Exception {
+        RecordingFactory factory = new RecordingFactory();
+        PrewarmPool<Integer> pool = new PrewarmPool<>(factory, 2, Long.MAX_VALUE);
+        pool.warm(7);
+        assertTrue(pool.cancel(7));
+        assertFalse(pool.cancel(7));
+        assertEquals(0, pool.size());
+        assertEquals(Integer.valueOf(7), factory.released.get(0));
+    }
+
+    @Test
+    public void putReturnsValueAsMostRecent() throws Exception {
+        RecordingFactory factory = new RecordingFactory();
+        PrewarmPool<Integer> pool = new PrewarmPool<>(factory, 2, Long.MAX_VALUE);
+        pool.warm(1);
+        pool.warm(2);
+        Integer value = pool.obtain(1);
+        pool.put(1, value);
+        pool.warm(3);
+        assertTrue(pool.contains(1));
+        assertFalse(pool.contains(2));
+    }
+
+    @Test
+    public void clearReleasesEverything() throws Exception {
+        RecordingFactory factory = new RecordingFactory();
+        PrewarmPool<Integer> pool = new PrewarmPool<>(factory, 3, Long.MAX_VALUE);
+        pool.warm(1);
+        pool.warm(2);
+        pool.clear();
+        assertEquals(0, pool.size());
+        assertEquals(2, factory.released.size());
+    }
+
+    @Test
+    public void zeroBudgetNeverWarms() throws Exception {
+        RecordingFactory factory = new RecordingFactory();
+        PrewarmPool<Integer> pool = new PrewarmPool<>(factory, 0, Long.MAX_VALUE);
+        assertFalse(pool.warm(1));
+        assertTrue(factory.created.isEmpty());
+    }
+}
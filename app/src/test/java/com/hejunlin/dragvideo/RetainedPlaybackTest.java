@@ -0,0 +1,157 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RetainedPlaybackTest {
+
+    private VirtualScheduler mScheduler;
+    private FakePlayerEngine.Factory mFullEngines;
+    private FakePlayerEngine.Factory mLowEngines;
+    private boolean mHasLowRendition = true;
+    private RetainedPlayback mPlayback;
+    private int mVideoWidth;
+
+    @Before
+    public void setUp() throws Exception {
+        mScheduler = new VirtualScheduler();
+        FakePlayerEngine.Script low = FakePlayerEngine.Script.typical();
+        low.videoWidth = 640;
+        low.videoHeight = 360;
+        mFullEngines = new FakePlayerEngine.Factory(mScheduler, FakePlayerEngine.Script.typical());
+        mLowEngines = new FakePlayerEngine.Factory(mScheduler, low);
+
+        PrewarmPool<PlayerPipeline> pool = new PrewarmPool<>(mFullEngines.prewarming(), 2, Long.MAX_VALUE);
+        mPlayback = new RetainedPlayback(pool, new RetainedPlayback.RenditionFactory() {
+            @Override
+            public boolean hasRendition(int program, int rendition) {
+                return rendition == RetainedPlayback.RENDITION_FULL || mHasLowRendition;
+            }
+
+            @Override
+            public PlayerPipeline create(int program, int rendition) {
+                return (rendition == RetainedPlayback.RENDITION_LOW ? mLowEngines : mFullEngines).newPipeline();
+            }
+        });
+        mPlayback.setListener(new PlayerPipeline.Listener() {
+            @Override
+            public void onVideoSizeChanged(int width, int height) {
+                mVideoWidth = width;
+            }
+
+            @Override
+            public void onStageFinished(int stage, long durationMillis) {
+            }
+
+            @Override
+            public void onError(int what, int extra) {
+            }
+        });
+    }
+
+    private FakePlayerEngine playFullRendition() {
+        mPlayback.switchTo(3).start();
+        mScheduler.runUntilIdle();
+        mScheduler.advanceBy(5000);
+        return mFullEngines.last;
+    }
+
+    @Test
+    public void lowRenditionContinuesAtTheSamePosition() throws Exception {
+        FakePlayerEngine full = playFullRendition();
+        mPlayback.requestRendition(RetainedPlayback.RENDITION_LOW);
+        mScheduler.advanceBy(100);
+        assertTrue("Full rendition plays while the low one prepares", full.isPlaying());
+
+        mScheduler.runUntilIdle();
+        FakePlayerEngine low = mLowEngines.last;
+        assertEquals(RetainedPlayback.RENDITION_LOW, mPlayback.getRendition());
+        assertTrue(full.isReleased());
+        assertTrue(low.isPlaying());
+        // Handed over as soon as the low rendition was prepared
+        assertEquals(5000 + 230, low.getCurrentPosition());
+        assertEquals(640, mVideoWidth);
+    }
+
+    @Test
+    public void requestingTheCurrentRenditionCancelsTheSwitch() throws Exception {
+        FakePlayerEngine full = playFullRendition();
+        mPlayback.requestRendition(RetainedPlayback.RENDITION_LOW);
+        mScheduler.advanceBy(100);
+        mPlayback.requestRendition(RetainedPlayback.RENDITION_FULL);
+        mScheduler.runUntilIdle();
+
+        assertEquals(RetainedPlayback.RENDITION_FULL, mPlayback.getRendition());
+        assertTrue(full.isPlaying());
+        assertTrue(mLowEngines.last.isReleased());
+        assertEquals(0, mLowEngines.last.getStartCount());
+    }
+
+    @Test
+    public void failedRenditionKeepsPlayingTheCurrentOne() throws Exception {
+        FakePlayerEngine full = playFullRendition();
+        mLowEngines.script.failPrepare = true;
+        mPlayback.requestRendition(RetainedPlayback.RENDITION_LOW);
+        mScheduler.runUntilIdle();
+
+        assertEquals(RetainedPlayback.RENDITION_FULL, mPlayback.getRendition());
+        assertTrue(full.isPlaying());
+        assertTrue(mLowEngines.last.isReleased());
+
+        // The switch was dropped, so it can be requested again
+        mLowEngines.script.failPrepare = false;
+        mPlayback.requestRendition(RetainedPlayback.RENDITION_LOW);
+        mScheduler.runUntilIdle();
+        assertEquals(RetainedPlayback.RENDITION_LOW, mPlayback.getRendition());
+        assertEquals(2, mLowEngines.created);
+    }
+
+    @Test
+    public void missingRenditionIsIgnored() throws Exception {
+        mHasLowRendition = false;
+        playFullRendition();
+        mPlayback.requestRendition(RetainedPlayback.RENDITION_LOW);
+        mScheduler.runUntilIdle();
+
+        assertEquals(0, mLowEngines.created);
+        assertEquals(RetainedPlayback.RENDITION_FULL, mPlayback.getRendition());
+    }
+
+    @Test
+    public void playersInUseCountAgainstThePoolBudget() throws Exception {
+        playFullRendition();
+        PrewarmPool<PlayerPipeline> pool = mPlayback.getPool();
+        assertTrue(pool.warm(4));
+        mScheduler.runUntilIdle();
+        FakePlayerEngine first = mFullEngines.last;
+        assertTrue(pool.warm(5));
+        mScheduler.runUntilIdle();
+        FakePlayerEngine warm = mFullEngines.last;
+        assertTrue("The playing player takes one of the two decoders", first.isReleased());
+        assertEquals(1, pool.size());
+
+        mPlayback.requestRendition(RetainedPlayback.RENDITION_LOW);
+        assertEquals(0, pool.size());
+        mScheduler.runUntilIdle();
+        assertTrue("The pending rendition takes the decoder of the warm player", warm.isReleased());
+
+        mScheduler.runUntilIdle();
+        assertEquals(RetainedPlayback.RENDITION_LOW, mPlayback.getRendition());
+        assertTrue(pool.warm(4));
+    }
+
+    @Test
+    public void lowRenditionIsNotPooled() throws Exception {
+        playFullRendition();
+        mPlayback.requestRendition(RetainedPlayback.RENDITION_LOW);
+        mScheduler.runUntilIdle();
+        mPlayback.switchTo(4);
+        mScheduler.runUntilIdle();
+
+        assertTrue(mLowEngines.last.isReleased());
+        assertFalse(mPlayback.getPool().contains(3));
+        assertEquals(RetainedPlayback.RENDITION_FULL, mPlayback.getRendition());
+    }
+}
@@ -0,0 +1,115 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SettleEngineTest {
+
+    @Test
+    public void springComesToRestAtTargetWithinDuration() throws Exception {
+        SettleEngine engine = new SettleEngine();
+        engine.setState(0, 0, 0, 0);
+        engine.springTo(0, 900, 300, 0);
+
+        long now = 0;
+        while (!engine.isFinished() && now < 1000) {
+            now += 16;
+            engine.computeScrollOffset(now);
+        }
+        assertTrue("still running after " + now + "ms", engine.isFinished());
+        assertTrue(now <= 400);
+        assertEquals(0, engine.getCurrX());
+        assertEquals(900, engine.getCurrY());
+        assertEquals(0f, engine.getCurrVelocityY(), 0f);
+    }
+
+    @Test
+    public void motionDoesNotDependOnFramePacing() throws Exception {
+        SettleEngine a = new SettleEngine();
+        SettleEngine b = new SettleEngine();
+        a.setState(0, 0, 0, 2000);
+        b.setState(0, 0, 0, 2000);
+        a.springTo(0, 900, 300, 0);
+        b.springTo(0, 900, 300, 0);
+
+        for (long now = 4; now <= 96; now += 4) {
+            a.computeScrollOffset(now);
+        }
+        for (long now = 16; now <= 96; now += 16) {
+            b.computeScrollOffset(now);
+        }
+        assertEquals(a.getCurrVelocityY(), b.getCurrVelocityY(), 0f);
+        assertEquals(a.getCurrY(), b.getCurrY());
+    }
+
+    @Test
+    public void retargetKeepsCurrentVelocity() throws Exception {
+        SettleEngine engine = new SettleEngine();
+        engine.setState(0, 0, 0, 0);
+        engine.springTo(0, 900, 300, 0);
+        engine.computeScrollOffset(64);
+        float velocity = engine.getCurrVelocityY();
+        int position = engine.getCurrY();
+        assertTrue(velocity > 0);
+
+        // Reverse mid flight: the view keeps moving down for a while before turning.
+        engine.springTo(0, 0, 300, 64);
+        assertEquals(velocity, engine.getCurrVelocityY(), 0f);
+        engine.computeScrollOffset(68);
+        assertTrue(engine.getCurrY() >= position);
+        assertFalse(engine.isFinished());
+    }
+
+    @Test
+    public void fastReleaseTowardsTargetStopsAtBound() throws Exception {
+        SettleEngine engine = new SettleEngine();
+        // Released 100px above the target at 8000px/s, far more than omega * 100px
+        engine.setState(0, 800, 0, 8000);
+        engine.springTo(0, 900, 0, 0, 0, 900, 300, 0);
+
+        int maxY = 0;
+        long now = 0;
+        while (!engine.isFinished() && now < 1000) {
+            now += 16;
+            engine.computeScrollOffset(now);
+            maxY = Math.max(maxY, engine.getCurrY());
+        }
+        assertTrue(engine.isFinished());
+        assertEquals(900, maxY);
+        assertEquals(900, engine.getCurrY());
+    }
+
+    @Test
+    public void unboundedSpringOvershootsFastRelease() throws Exception {
+        SettleEngine engine = new SettleEngine();
+        engine.setState(0, 800, 0, 8000);
+        engine.springTo(0, 900, 300, 0);
+        engine.computeScrollOffset(48);
+        assertTrue(engine.getCurrY() > 900);
+    }
+
+    @Test
+    public void flingStopsAtBound() throws Exception {
+        SettleEngine engine = new SettleEngine();
+        engine.setState(100, 0, 0, 0);
+        engine.fling(-5000, 0, 0, 500, 0, 0, 0);
+        for (long now = 16; now < 2000 && !engine.isFinished(); now += 16) {
+            engine.computeScrollOffset(now);
+        }
+        assertTrue(engine.isFinished());
+        assertEquals(0, engine.getCurrX());
+        assertFalse(engine.computeScrollOffset(3000));
+    }
+
+    @Test
+    public void abortJumpsToTarget() throws Exception {
+        SettleEngine engine = new SettleEngine();
+        engine.setState(0, 0, 0, 0);
+        engine.springTo(300, 600, 256, 0);
+        engine.abortAnimation();
+        assertTrue(engine.isFinished());
+        assertEquals(300, engine.getCurrX());
+        assertEquals(600, engine.getCurrY());
+    }
+}
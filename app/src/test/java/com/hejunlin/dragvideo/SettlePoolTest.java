@@ -0,0 +1,63 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SettlePoolTest {
+
+    @Test
+    public void obtainReturnsSameEngineForSameView() throws Exception {
+        SettlePool<String> pool = new SettlePool<>();
+        SettleEngine a = pool.obtain("a");
+        SettleEngine b = pool.obtain("b");
+        assertNotSame(a, b);
+        assertSame(a, pool.obtain("a"));
+        assertEquals(2, pool.size());
+        assertEquals(1, pool.indexOf("b"));
+        assertEquals(-1, pool.indexOf("c"));
+    }
+
+    @Test
+    public void removedEnginesAreReused() throws Exception {
+        SettlePool<String> pool = new SettlePool<>();
+        SettleEngine[] engines = new SettleEngine[10];
+        for (int i = 0; i < 10; i++) {
+            engines[i] = pool.obtain("v" + i);
+        }
+        // Remove from the middle: the last entry takes its place.
+        pool.remove(2);
+        assertEquals(9, pool.size());
+        assertEquals("v9", pool.getView(2));
+        assertSame(engines[9], pool.getEngine(2));
+
+        while (pool.size() > 0) {
+            pool.remove(0);
+        }
+        for (int i = 0; i < 10; i++) {
+            SettleEngine engine = pool.obtain("w" + i);
+            boolean pooled = false;
+            for (SettleEngine e : engines) {
+                pooled |= e == engine;
+            }
+            assertTrue("engine " + i + " was not reused", pooled);
+        }
+    }
+
+    @Test
+    public void enginesMoveBetweenCapturedViewAndPool() throws Exception {
+        SettlePool<String> pool = new SettlePool<>();
+        SettleEngine captured = new SettleEngine();
+
+        // The captured view settles on by itself when another view is captured.
+        SettleEngine spare = pool.add("captured", captured);
+        assertNotSame(captured, spare);
+        assertSame(captured, pool.getEngine(pool.indexOf("captured")));
+
+        // Catching it again hands its engine back and pools the spare one.
+        SettleEngine caught = pool.exchange(pool.indexOf("captured"), spare);
+        assertSame(captured, caught);
+        assertEquals(0, pool.size());
+        assertSame(spare, pool.obtain("other"));
+    }
+}
@@ -0,0 +1,37 @@
+package com.hejunlin.dragvideo;
+
+import android.content.Context;
+import android.view.accessibility.AccessibilityManager;
+
+import org.robolectric.annotation.HiddenApi;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.annotation.Resetter;
+import org.robolectric.shadows.ShadowAccessibilityManager;
+
+/**
+ * Every view that moves asks for the AccessibilityManager. The framework returns one
+ * instance, while the shadow of Robolectric 3.1 builds a new one each time, whose
+ * content observers pile up and dominate the time and allocations of every drag.
+ *
+ * <p>Registered for all tests in robolectric.properties: Robolectric 3.1 cannot mix
+ * test classes with different shadows in one run.</p>
+ */
+@Implements(AccessibilityManager.class)
+public class SingleAccessibilityManager extends ShadowAccessibilityManager {
+    private static AccessibilityManager sInstance;
+
+    @HiddenApi
+    @Implementation
+    public static AccessibilityManager getInstance(Context context) throws Exception {
+        if (sInstance == null) {
+            sInstance = ShadowAccessibilityManager.getInstance(context);
+        }
+        return sInstance;
+    }
+
+    @Resetter
+    public static void reset() {
+        sInstance = null;
+    }
+}
@@ -0,0 +1,59 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class StartupTraceTest {
+
+    @Test
+    public void firstMarkWins() throws Exception {
+        StartupTrace trace = new StartupTrace();
+        trace.beginSession(1000L);
+        assertTrue(trace.mark(StartupTrace.MARK_FIRST_FRAME, 1300L));
+        assertFalse(trace.mark(StartupTrace.MARK_FIRST_FRAME, 1316L));
+        assertEquals(300L, trace.getTimeToFirstFrame());
+    }
+
+    @Test
+    public void playbackMarksNeedASession() throws Exception {
+        StartupTrace trace = new StartupTrace();
+        assertTrue(trace.mark(StartupTrace.MARK_CREATE_BEGIN, 10L));
+        assertTrue(trace.mark(StartupTrace.MARK_CREATE_END, 60L));
+        assertFalse(trace.mark(StartupTrace.MARK_FIRST_FRAME, 100L));
+        assertEquals(50L, trace.getElapsed(StartupTrace.MARK_CREATE_END));
+        assertEquals(-1L, trace.getTimeToFirstFrame());
+    }
+
+    @Test
+    public void sessionClearsOnlyPlaybackMarks() throws Exception {
+        StartupTrace trace = new StartupTrace();
+        trace.mark(StartupTrace.MARK_CREATE_BEGIN, 10L);
+        trace.beginSession(1000L);
+        trace.mark(StartupTrace.MARK_FIRST_FRAME, 1200L);
+        trace.mark(StartupTrace.MARK_SETTLED, 1250L);
+        assertTrue(trace.isComplete());
+
+        trace.beginSession(5000L);
+        assertFalse(trace.isComplete());
+        assertFalse(trace.isMarked(StartupTrace.MARK_FIRST_FRAME));
+        assertTrue(trace.isMarked(StartupTrace.MARK_CREATE_BEGIN));
+        assertEquals(2, trace.getSessionCount());
+    }
+
+    @Test
+    public void prewarmedPrepareIsBeforeTheClick() throws Exception {
+        StartupTrace trace = new StartupTrace();
+        trace.beginSession(1000L);
+        trace.mark(StartupTrace.MARK_PREPARE_END, 800L);
+        assertEquals(-200L, trace.getElapsed(StartupTrace.MARK_PREPARE_END));
+
+        StringWriter out = new StringWriter();
+        trace.dump("", new PrintWriter(out));
+        assertTrue(out.toString().contains("prepareEnd -200ms @800"));
+        assertTrue(out.toString().contains("firstFrame -"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.hejunlin.dragvideo;
+
+import android.view.MotionEvent;
+
+/**
+ * Synthesized recordings for replay tests.
+ */
+final class TouchGestures {
+
+    private TouchGestures() {
+    }
+
+    /**
+     * A single finger drag between two points in pixels, one move every
+     * <code>sampleMillis</code> carrying one historical sample halfway.
+     */
+    static byte[] drag(float x0, float y0, float x1, float y1, int durationMillis, int sampleMillis) {
+        final int[] ids = {0};
+        final long[] times = new long[2];
+        final float[] xs = new float[2];
+        final float[] ys = new float[2];
+
+        TouchRecording.Writer writer = new TouchRecording.Writer();
+        writer.writeEvent(MotionEvent.ACTION_DOWN, 0, 1, ids, 1,
+                new long[]{0L}, new float[]{x0}, new float[]{y0});
+        for (int t = sampleMillis; t <= durationMillis; t += sampleMillis) {
+            for (int s = 0; s < 2; s++) {
+                final int time = t - sampleMillis / 2 * (1 - s);
+                final float fraction = (float) time / durationMillis;
+                times[s] = time;
+                xs[s] = x0 + (x1 - x0) * fraction;
+                ys[s] = y0 + (y1 - y0) * fraction;
+            }
+            writer.writeEvent(MotionEvent.ACTION_MOVE, 0, 1, ids, 2, times, xs, ys);
+        }
+        writer.writeEvent(MotionEvent.ACTION_UP, 0, 1, ids, 1,
+                new long[]{durationMillis}, new float[]{x1}, new float[]{y1});
+        return writer.toByteArray();
+    }
+
+    /**
+     * A drag between two points in pixels that a second finger, <code>offsetX</code> to
+     * the right, joins after a third of the duration and takes over after two thirds,
+     * when the first finger lifts. One move every <code>sampleMillis</code>.
+     */
+    static byte[] twoFingerDrag(float x0, float y0, float x1, float y1, float offsetX,
+                                int durationMillis, int sampleMillis) {
+        final int[] first = {0};
+        final int[] both = {0, 1};
+        final int[] second = {1};
+        final int joinMillis = durationMillis / 3;
+        final int liftMillis = durationMillis * 2 / 3;
+        final long[] times = new long[1];
+        final float[] xs = new float[2];
+        final float[] ys = new float[2];
+
+        TouchRecording.Writer writer = new TouchRecording.Writer();
+        writer.writeEvent(MotionEvent.ACTION_DOWN, 0, 1, first, 1,
+                new long[]{0L}, new float[]{x0}, new float[]{y0});
+        for (int t = sampleMillis; t <= durationMillis; t += sampleMillis) {
+            final float fraction = (float) t / durationMillis;
+            final float x = x0 + (x1 - x0) * fraction;
+            final float y = y0 + (y1 - y0) * fraction;
+            times[0] = t;
+            if (t < joinMillis) {
+                xs[0] = x;
+                ys[0] = y;
+                writer.writeEvent(MotionEvent.ACTION_MOVE, 0, 1, first, 1, times, xs, ys);
+            } else if (t < liftMillis) {
+                xs[0] = x;
+                ys[0] = y;
+                xs[1] = x + offsetX;
+                ys[1] = y;
+                final boolean join = t - sampleMillis < joinMillis;
+                writer.writeEvent(join ? MotionEvent.ACTION_POINTER_DOWN : MotionEvent.ACTION_MOVE,
+                        join ? 1 : 0, 2, both, 1, times, xs, ys);
+            } else if (t - sampleMillis < liftMillis) {
+                xs[0] = x;
+                ys[0] = y;
+                xs[1] = x + offsetX;
+                ys[1] = y;
+                writer.writeEvent(MotionEvent.ACTION_POINTER_UP, 0, 2, both, 1, times, xs, ys);
+            } else {
+                xs[0] = x + offsetX;
+                ys[0] = y;
+                writer.writeEvent(MotionEvent.ACTION_MOVE, 0, 1, second, 1, times, xs, ys);
+            }
+        }
+        writer.writeEvent(MotionEvent.ACTION_UP, 0, 1, second, 1,
+                new long[]{durationMillis}, new float[]{x1 + offsetX}, new float[]{y1});
+        return writer.toByteArray();
+    }
+}
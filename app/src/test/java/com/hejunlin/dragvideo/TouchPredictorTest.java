@@ -0,0 +1,76 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TouchPredictorTest {
+
+    @Test
+    public void fitRecoversVelocityAndAcceleration() throws Exception {
+        float[] time = new float[10];
+        float[] pos = new float[10];
+        for (int i = 0; i < 10; i++) {
+            time[i] = -(9 - i) * 4;
+            pos[i] = 3f + 2f * time[i] + 0.05f * time[i] * time[i];
+        }
+        double[] out = new double[2];
+        TouchPredictor.fit(time, pos, 10, out);
+        assertEquals(2.0, out[0], 1e-3);
+        assertEquals(0.1, out[1], 1e-4);
+    }
+
+    @Test
+    public void extrapolatesConstantVelocity() throws Exception {
+        TouchPredictor predictor = new TouchPredictor();
+        // 0.5 px/ms to the right, 1 px/ms upwards
+        for (int t = 0; t <= 48; t += 4) {
+            predictor.addSample(t, 0.5f * t, -1f * t);
+        }
+        predictor.predict(48 + 16);
+        assertEquals(8f, predictor.getOffsetX(), 0.01f);
+        assertEquals(-16f, predictor.getOffsetY(), 0.01f);
+    }
+
+    @Test
+    public void predictionIsBounded() throws Exception {
+        TouchPredictor predictor = new TouchPredictor();
+        predictor.setMaxDistance(10f);
+        for (int t = 0; t <= 48; t += 4) {
+            predictor.addSample(t, 5f * t, 0f);
+        }
+        predictor.predict(48 + 16);
+        assertEquals(10f, predictor.getOffsetX(), 0f);
+
+        // The horizon is capped as well.
+        predictor.setMaxDistance(Float.MAX_VALUE);
+        predictor.predict(48 + 1000);
+        assertEquals(5f * TouchPredictor.MAX_PREDICTION_MS, predictor.getOffsetX(), 0.5f);
+    }
+
+    @Test
+    public void noPredictionWhenStoppingOrWithoutHistory() throws Exception {
+        TouchPredictor predictor = new TouchPredictor();
+        predictor.addSample(0, 100f, 100f);
+        predictor.predict(16);
+        assertEquals(0f, predictor.getOffsetX(), 0f);
+        assertEquals(0f, predictor.getOffsetY(), 0f);
+
+        // Decelerating hard enough to reverse within the horizon: x = 2t - t^2 / 40
+        predictor.clear();
+        for (int t = 0; t <= 32; t += 4) {
+            predictor.addSample(t, 2f * t - t * t / 40f, 0f);
+        }
+        predictor.predict(32 + 40);
+        assertEquals(0f, predictor.getOffsetX(), 0f);
+
+        // A pause drops everything before it.
+        predictor.clear();
+        for (int t = 0; t <= 32; t += 4) {
+            predictor.addSample(t, t, 0f);
+        }
+        predictor.addSample(200, 32f, 0f);
+        predictor.predict(216);
+        assertEquals(0f, predictor.getOffsetX(), 0f);
+    }
+}
@@ -0,0 +1,101 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.Assert.*;
+
+public class TouchRecordingTest {
+    private static final int ACTION_DOWN = 0;
+    private static final int ACTION_MOVE = 2;
+    private static final int ACTION_POINTER_DOWN = 5;
+
+    @Test
+    public void roundTripsEventsWithHistory() throws Exception {
+        TouchRecording.Writer writer = new TouchRecording.Writer();
+        writer.writeEvent(ACTION_DOWN, 0, 1, new int[]{3}, 1,
+                new long[]{1000L}, new float[]{100.5f}, new float[]{200.25f});
+        writer.writeEvent(ACTION_POINTER_DOWN, 1, 2, new int[]{3, 7}, 1,
+                new long[]{1010L}, new float[]{101f, 400f}, new float[]{201f, 10f});
+        writer.writeEvent(ACTION_MOVE, 0, 2, new int[]{3, 7}, 2,
+                new long[]{1014L, 1018L}, new float[]{99f, 410f, 98f, 420.0625f},
+                new float[]{205f, 12f, 209f, 14f});
+
+        TouchRecording.Reader reader = TouchRecording.Reader.from(
+                new ByteArrayInputStream(writer.toByteArray()));
+        assertTrue(reader.next());
+        assertEquals(ACTION_DOWN, reader.getAction());
+        assertEquals(1, reader.getPointerCount());
+        assertEquals(3, reader.getPointerId(0));
+        assertEquals(0L, reader.getEventTime());
+        assertEquals(100.5f, reader.getX(0, 0), 0f);
+        assertEquals(200.25f, reader.getY(0, 0), 0f);
+
+        assertTrue(reader.next());
+        assertEquals(ACTION_POINTER_DOWN, reader.getAction());
+        assertEquals(1, reader.getActionIndex());
+        assertEquals(7, reader.getPointerId(1));
+        assertEquals(10L, reader.getEventTime());
+        assertEquals(400f, reader.getX(0, 1), 0f);
+
+        assertTrue(reader.next());
+        assertEquals(2, reader.getSampleCount());
+        assertEquals(14L, reader.getSampleTime(0));
+        assertEquals(18L, reader.getEventTime());
+        assertEquals(410f, reader.getX(0, 1), 0f);
+        assertEquals(98f, reader.getX(1, 0), 0f);
+        assertEquals(420.0625f, reader.getX(1, 1), 0f);
+        assertEquals(14f, reader.getY(1, 1), 0f);
+
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void quantizesToSixteenthOfPixel() throws Exception {
+        TouchRecording.Writer writer = new TouchRecording.Writer();
+        writer.writeEvent(ACTION_DOWN, 0, 1, new int[]{0}, 1,
+                new long[]{0L}, new float[]{10.3f}, new float[]{-0.01f});
+
+        TouchRecording.Reader reader = new TouchRecording.Reader(writer.toByteArray());
+        assertTrue(reader.next());
+        assertEquals(10.3125f, reader.getX(0, 0), 0f);
+        assertEquals(0f, reader.getY(0, 0), 0f);
+    }
+
+    @Test
+    public void smallMovesAreCompact() throws Exception {
+        TouchRecording.Writer writer = new TouchRecording.Writer();
+        writer.writeEvent(ACTION_DOWN, 0, 1, new int[]{0}, 1,
+                new long[]{0L}, new float[]{500f}, new float[]{500f});
+        int before = writer.size();
+        writer.writeEvent(ACTION_MOVE, 0, 1, new int[]{0}, 1,
+                new long[]{8L}, new float[]{503f}, new float[]{497f});
+        assertEquals(8, writer.size() - before);
+    }
+
+    @Test
+    public void clearKeepsHeader() throws Exception {
+        TouchRecording.Writer writer = new TouchRecording.Writer();
+        writer.writeEvent(ACTION_DOWN, 0, 1, new int[]{0}, 1,
+                new long[]{0L}, new float[]{1f}, new float[]{1f});
+        writer.clear();
+        assertFalse(new TouchRecording.Reader(writer.toByteArray()).next());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownData() throws Exception {
+        new TouchRecording.Reader(new byte[]{1, 2, 3, 4, 5});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedEvent() throws Exception {
+        TouchRecording.Writer writer = new TouchRecording.Writer();
+        writer.writeEvent(ACTION_DOWN, 0, 1, new int[]{0}, 1,
+                new long[]{0L}, new float[]{300f}, new float[]{300f});
+        byte[] data = writer.toByteArray();
+        byte[] truncated = new byte[data.length - 1];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        new TouchRecording.Reader(truncated).next();
+    }
+}
@@ -0,0 +1,288 @@
+package com.hejunlin.dragvideo;
+
+import android.view.MotionEvent;
+
+import org.robolectric.Robolectric;
+import org.robolectric.Shadows;
+import org.robolectric.shadows.ShadowMotionEvent;
+import org.robolectric.util.Scheduler;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Replays a {@link TouchRecording} into a {@link DragVideoView} under Robolectric.
+ *
+ * <p>Time comes from the virtual clock of the main looper: events are delivered at
+ * their recorded offsets and a frame runs every {@link #FRAME_MILLIS}, calling
+ * {@link DragVideoView#computeScroll()} as the draw pass would. After the last event
+ * frames keep running until the drag helper is idle, so the result is the state the
+ * user would end up looking at.</p>
+ *
+ * <p>Each frame records the wall time spent dispatching its events and computing its
+ * scroll, so the same recordings serve as benchmarks. The replay also sums the time and
+ * the bytes allocated on this thread by dispatchTouchEvent and computeScroll alone, not
+ * counting the events it obtains or the scheduler it advances.</p>
+ *
+ * <p>The MotionEvent shadow of Robolectric 3.1 keeps neither batched history nor more
+ * than two pointers, so every sample is delivered as its own event at its own time,
+ * as {@link #flatten(byte[])} describes, and recordings with more than two pointers are
+ * rejected.</p>
+ */
+public class TouchReplayer {
+    public static final int FRAME_MILLIS = 16;
+
+    private static final int MAX_SETTLE_FRAMES = 300;
+
+    private final DragVideoView mView;
+    private final Scheduler mScheduler = Robolectric.getForegroundThreadScheduler();
+
+    private final com.sun.management.ThreadMXBean mThreadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final long mThreadId = Thread.currentThread().getId();
+    private final boolean mCountsAllocations;
+    /**
+     * Bytes a call to getThreadAllocatedBytes allocates itself
+     */
+    private long mAllocationOverhead;
+
+    private long mNextFrameTime;
+    private long mPendingNanos;
+    private int mEventCount;
+    private long mEventNanos;
+    private long mEventBytes;
+    private long mScrollNanos;
+    private long mScrollBytes;
+    private long[] mFrameNanos = new long[64];
+    private int mFrameCount;
+    private FrameListener mFrameListener;
+
+    public TouchReplayer(DragVideoView view) {
+        mView = view;
+        mCountsAllocations = mThreadBean.isThreadAllocatedMemorySupported();
+        if (mCountsAllocations) {
+            mThreadBean.setThreadAllocatedMemoryEnabled(true);
+            mAllocationOverhead = Long.MAX_VALUE;
+            for (int i = 0; i < 16; i++) {
+                final long before = mThreadBean.getThreadAllocatedBytes(mThreadId);
+                mAllocationOverhead = Math.min(mAllocationOverhead,
+                        mThreadBean.getThreadAllocatedBytes(mThreadId) - before);
+            }
+        }
+    }
+
+    /**
+     * Called after every frame, e.g. to check per frame budgets.
+     */
+    public void setFrameListener(FrameListener listener) {
+        mFrameListener = listener;
+    }
+
+    /**
+     * Run frames until the view is idle, e.g. after {@link DragVideoView#show()}.
+     */
+    public Result settle() {
+        begin();
+        finish();
+        return result();
+    }
+
+    public Result replay(byte[] recording) {
+        final TouchRecording.Reader reader = new TouchRecording.Reader(recording);
+        begin();
+        final long start = mScheduler.getCurrentTime();
+        long downTime = start;
+        while (reader.next()) {
+            if (reader.getPointerCount() > 2) {
+                throw new IllegalArgumentException("Robolectric 3.1 supports at most two pointers");
+            }
+            final int sampleCount = reader.getSampleCount();
+            for (int s = 0; s < sampleCount; s++) {
+                final long eventTime = start + reader.getSampleTime(s);
+                while (mNextFrameTime <= eventTime) {
+                    runFrame();
+                }
+                mScheduler.advanceTo(eventTime);
+                if (reader.getAction() == MotionEvent.ACTION_DOWN) {
+                    downTime = eventTime;
+                }
+
+                // 历史采样都是MOVE，只有最后一个采样带原来的动作
+                final boolean last = s == sampleCount - 1;
+                final MotionEvent ev = obtain(reader, s, last ? reader.getAction() : MotionEvent.ACTION_MOVE,
+                        last ? reader.getActionIndex() : 0, eventTime, downTime);
+                final long bytes = allocatedBytes();
+                final long begin = System.nanoTime();
+                mView.dispatchTouchEvent(ev);
+                final long nanos = System.nanoTime() - begin;
+                mEventBytes += allocatedBytes() - bytes - mAllocationOverhead;
+                mPendingNanos += nanos;
+                mEventNanos += nanos;
+                mEventCount++;
+                ev.recycle();
+            }
+        }
+        finish();
+        return result();
+    }
+
+    private void begin() {
+        mFrameCount = 0;
+        mPendingNanos = 0;
+        mEventCount = 0;
+        mEventNanos = mEventBytes = mScrollNanos = mScrollBytes = 0;
+        mNextFrameTime = mScheduler.getCurrentTime() + FRAME_MILLIS;
+    }
+
+    private Result result() {
+        return new Result(mView, Arrays.copyOf(mFrameNanos, mFrameCount), mEventCount, mEventNanos,
+                mCountsAllocations ? mEventBytes : -1, mScrollNanos, mCountsAllocations ? mScrollBytes : -1);
+    }
+
+    private long allocatedBytes() {
+        return mCountsAllocations ? mThreadBean.getThreadAllocatedBytes(mThreadId) : 0;
+    }
+
+    private void finish() {
+        for (int i = 0; i < MAX_SETTLE_FRAMES
+                && mView.getViewDragState() != CustomViewDragHelper.STATE_IDLE; i++) {
+            runFrame();
+        }
+        // 归位结束的回调是post出去的，再走一帧
+        runFrame();
+    }
+
+    private void runFrame() {
+        mScheduler.advanceTo(mNextFrameTime);
+        final long bytes = allocatedBytes();
+        final long begin = System.nanoTime();
+        mView.computeScroll();
+        final long scrollNanos = System.nanoTime() - begin;
+        mScrollBytes += allocatedBytes() - bytes - mAllocationOverhead;
+        mScrollNanos += scrollNanos;
+        final long nanos = mPendingNanos + scrollNanos;
+        mPendingNanos = 0;
+        mNextFrameTime += FRAME_MILLIS;
+
+        if (mFrameCount == mFrameNanos.length) {
+            mFrameNanos = Arrays.copyOf(mFrameNanos, mFrameCount * 2);
+        }
+        mFrameNanos[mFrameCount++] = nanos;
+        if (mFrameListener != null) {
+            mFrameListener.onFrame(mFrameCount - 1);
+        }
+    }
+
+    /**
+     * The shadow reports the action as given, and the action index separately.
+     */
+    private static MotionEvent obtain(TouchRecording.Reader reader, int sample, int action,
+                                      int actionIndex, long eventTime, long downTime) {
+        final MotionEvent ev = MotionEvent.obtain(downTime, eventTime, action,
+                reader.getX(sample, 0), reader.getY(sample, 0), 0);
+        final ShadowMotionEvent shadow = Shadows.shadowOf(ev);
+        if (reader.getPointerCount() == 2) {
+            shadow.setPointer2(reader.getX(sample, 1), reader.getY(sample, 1));
+            shadow.setPointerIds(reader.getPointerId(0), reader.getPointerId(1));
+        } else {
+            shadow.setPointerIds(reader.getPointerId(0), reader.getPointerId(0) + 1);
+        }
+        shadow.setPointerIndex(actionIndex);
+        return ev;
+    }
+
+    /**
+     * @return the recording with every historical sample split into its own move event,
+     * which is the stream {@link #replay(byte[])} dispatches
+     */
+    public static byte[] flatten(byte[] recording) {
+        final TouchRecording.Reader reader = new TouchRecording.Reader(recording);
+        final TouchRecording.Writer writer = new TouchRecording.Writer();
+        final int[] ids = new int[PointerSlots.MAX_POINTERS];
+        final long[] time = new long[1];
+        final float[] xs = new float[PointerSlots.MAX_POINTERS];
+        final float[] ys = new float[PointerSlots.MAX_POINTERS];
+        while (reader.next()) {
+            final int pointerCount = reader.getPointerCount();
+            for (int i = 0; i < pointerCount; i++) {
+                ids[i] = reader.getPointerId(i);
+            }
+            final int sampleCount = reader.getSampleCount();
+            for (int s = 0; s < sampleCount; s++) {
+                final boolean last = s == sampleCount - 1;
+                time[0] = reader.getSampleTime(s);
+                for (int i = 0; i < pointerCount; i++) {
+                    xs[i] = reader.getX(s, i);
+                    ys[i] = reader.getY(s, i);
+                }
+                writer.writeEvent(last ? reader.getAction() : MotionEvent.ACTION_MOVE,
+                        last ? reader.getActionIndex() : 0, pointerCount, ids, 1, time, xs, ys);
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    public interface FrameListener {
+        void onFrame(int frame);
+    }
+
+    /**
+     * State of the view once the replay has settled, and the work done per frame.
+     */
+    public static final class Result {
+        public final boolean minimum;
+        public final float verticalOffset;
+        public final float horizontalOffset;
+        public final int dragState;
+        public final long[] frameNanos;
+        /**
+         * Events dispatched, and the time and bytes dispatchTouchEvent took for all of them.
+         * Bytes are -1 when the JVM does not count allocations.
+         */
+        public final int eventCount;
+        public final long eventNanos;
+        public final long eventBytes;
+        /**
+         * Time and bytes computeScroll took over all frames
+         */
+        public final long scrollNanos;
+        public final long scrollBytes;
+
+        Result(DragVideoView view, long[] frameNanos, int eventCount, long eventNanos, long eventBytes,
+               long scrollNanos, long scrollBytes) {
+            this.minimum = view.isMinimum();
+            this.verticalOffset = view.getVerticalOffset();
+            this.horizontalOffset = view.getHorizontalOffset();
+            this.dragState = view.getViewDragState();
+            this.frameNanos = frameNanos;
+            this.eventCount = eventCount;
+            this.eventNanos = eventNanos;
+            this.eventBytes = eventBytes;
+            this.scrollNanos = scrollNanos;
+            this.scrollBytes = scrollBytes;
+        }
+
+        /**
+         * @param percentile 0 to 100
+         */
+        public long getFrameNanos(int percentile) {
+            if (frameNanos.length == 0) {
+                return 0;
+            }
+            final long[] sorted = frameNanos.clone();
+            Arrays.sort(sorted);
+            return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+        }
+
+        @Override
+        public String toString() {
+            return "minimum=" + minimum
+                    + " verticalOffset=" + verticalOffset
+                    + " horizontalOffset=" + horizontalOffset
+                    + " dragState=" + dragState
+                    + " frames=" + frameNanos.length
+                    + " p50=" + getFrameNanos(50) / 1000 + "us"
+                    + " p99=" + getFrameNanos(99) / 1000 + "us";
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TraceBufferTest {
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() throws Exception {
+        assertEquals(1, new TraceBuffer(1).capacity());
+        assertEquals(8, new TraceBuffer(5).capacity());
+        assertEquals(4096, new TraceBuffer(4096).capacity());
+    }
+
+    @Test
+    public void keepsNewestRecordsOldestFirst() throws Exception {
+        TraceBuffer buffer = new TraceBuffer(4);
+        for (int i = 0; i < 6; i++) {
+            buffer.record(i * 10L, i, i, -i, 2 * i);
+        }
+        assertEquals(4, buffer.size());
+        assertEquals(2, buffer.getDroppedCount());
+        assertEquals(20L, buffer.getTime(0));
+        assertEquals(2, buffer.getEvent(0));
+        assertEquals(5, buffer.getArg0(3));
+        assertEquals(-5, buffer.getArg1(3));
+        assertEquals(10, buffer.getArg2(3));
+
+        buffer.clear();
+        assertEquals(0, buffer.size());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsIndexBeyondSize() throws Exception {
+        TraceBuffer buffer = new TraceBuffer(4);
+        buffer.record(0L, 1, 0, 0, 0);
+        buffer.getEvent(1);
+    }
+}
@@ -0,0 +1,97 @@
+package com.hejunlin.dragvideo;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class VelocityEstimatorTest {
+
+    @Test
+    public void leastSquaresTracksConstantVelocity() throws Exception {
+        assertConstantVelocity(new VelocityEstimator.LeastSquares());
+    }
+
+    @Test
+    public void impulseTracksConstantVelocity() throws Exception {
+        assertConstantVelocity(new VelocityEstimator.Impulse());
+    }
+
+    @Test
+    public void leastSquaresReportsVelocityAtNewestSample() throws Exception {
+        VelocityEstimator estimator = new VelocityEstimator.LeastSquares();
+        // y = t^2 / 10 -> dy/dt = t / 5 px/ms, 16 px/ms at t = 80
+        for (int t = 0; t <= 80; t += 8) {
+            estimator.addMovement(0, t, 0f, t * t / 10f);
+        }
+        estimator.computeCurrentVelocity(1, Float.MAX_VALUE);
+        assertEquals(16f, estimator.getYVelocity(0), 0.01f);
+    }
+
+    @Test
+    public void pauseBeforeReleaseMeansNoVelocity() throws Exception {
+        VelocityEstimator estimator = new VelocityEstimator.LeastSquares();
+        for (int t = 0; t <= 80; t += 8) {
+            estimator.addMovement(0, t, 0f, t);
+        }
+        estimator.addMovement(0, 200, 0f, 80f);
+        estimator.computeCurrentVelocity(1000, Float.MAX_VALUE);
+        assertEquals(0f, estimator.getYVelocity(0), 0f);
+    }
+
+    @Test
+    public void velocityIsClampedAndPerPointer() throws Exception {
+        VelocityEstimator estimator = new VelocityEstimator.LeastSquares();
+        for (int t = 0; t <= 48; t += 8) {
+            estimator.addMovement(0, t, -10f * t, 0f);
+            estimator.addMovement(3, t, 0f, 0.5f * t);
+        }
+        estimator.computeCurrentVelocity(1000, 4000f);
+        assertEquals(-4000f, estimator.getXVelocity(0), 0f);
+        assertEquals(500f, estimator.getYVelocity(3), 0.5f);
+
+        estimator.clear(3);
+        estimator.computeCurrentVelocity(1000, 4000f);
+        assertEquals(0f, estimator.getYVelocity(3), 0f);
+    }
+
+    @Test
+    public void estimatingDoesNotAllocate() throws Exception {
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+
+        VelocityEstimator estimator = new VelocityEstimator.LeastSquares();
+        runGestures(estimator, 2000);
+
+        long threadId = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(threadId);
+        runGestures(estimator, 2000);
+        long after = bean.getThreadAllocatedBytes(threadId);
+
+        assertTrue("allocated " + (after - before) + " bytes", after - before < 1024);
+    }
+
+    private static void assertConstantVelocity(VelocityEstimator estimator) {
+        // 1.5 px/ms downwards, sampled every 4 ms
+        for (int t = 0; t <= 96; t += 4) {
+            estimator.addMovement(0, t, 100f, 300f + 1.5f * t);
+        }
+        estimator.computeCurrentVelocity(1000, Float.MAX_VALUE);
+        assertEquals(0f, estimator.getXVelocity(0), 0.5f);
+        assertEquals(1500f, estimator.getYVelocity(0), 0.5f);
+    }
+
+    private static void runGestures(VelocityEstimator estimator, int count) {
+        for (int i = 0; i < count; i++) {
+            estimator.clear();
+            for (int t = 0; t < 160; t += 8) {
+                estimator.addMovement(0, t, t, 2 * t);
+            }
+            estimator.computeCurrentVelocity(1000, 8000f);
+        }
+    }
+}
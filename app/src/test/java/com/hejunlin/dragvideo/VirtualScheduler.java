@@ -0,0 +1,80 @@
+package com.hejunlin.dragvideo;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Single threaded executor on a virtual clock. Tasks run in order of their due time,
+ * then in the order they were posted, only when the test advances the clock.
+ */
+final class VirtualScheduler implements Executor, PlayerPipeline.Clock {
+
+    private final PriorityQueue<Task> mTasks = new PriorityQueue<>();
+    private long mNow;
+    private long mSequence;
+
+    @Override
+    public long uptimeMillis() {
+        return mNow;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        schedule(command, 0);
+    }
+
+    void schedule(Runnable command, long delayMillis) {
+        mTasks.add(new Task(mNow + delayMillis, mSequence++, command));
+    }
+
+    /**
+     * Spend time inside the running task, as a blocking call would.
+     */
+    void busy(long millis) {
+        mNow += millis;
+    }
+
+    /**
+     * Run every task due within the given time, including tasks they post.
+     */
+    void advanceBy(long millis) {
+        final long end = mNow + millis;
+        while (!mTasks.isEmpty() && mTasks.peek().time <= end) {
+            Task task = mTasks.poll();
+            mNow = Math.max(mNow, task.time);
+            task.command.run();
+        }
+        mNow = Math.max(mNow, end);
+    }
+
+    /**
+     * Run tasks until none is left.
+     */
+    void runUntilIdle() {
+        while (!mTasks.isEmpty()) {
+            Task task = mTasks.poll();
+            mNow = Math.max(mNow, task.time);
+            task.command.run();
+        }
+    }
+
+    private static final class Task implements Comparable<Task> {
+        final long time;
+        final long sequence;
+        final Runnable command;
+
+        Task(long time, long sequence, Runnable command) {
+            this.time = time;
+            this.sequence = sequence;
+            this.command = command;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (time != other.time) {
+                return time < other.time ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : sequence > other.sequence ? 1 : 0;
+        }
+    }
+}
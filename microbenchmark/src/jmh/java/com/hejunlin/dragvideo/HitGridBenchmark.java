@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Per-query cost of finding the topmost child under a point with {@link HitGrid} against
+ * testing every child from the top, as <code>findTopChildUnder</code> does without the
+ * index, and per-frame cost of moving one dragged child in the grid. Scores are
+ * ns/query and ns/frame.
+ */
+@State(Scope.Thread)
+public class HitGridBenchmark {
+    static final int QUERIES = 256;
+    static final int FRAMES = 60;
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1776;
+    private static final int ITEM_WIDTH = 360;
+    private static final int ITEM_HEIGHT = 202;
+
+    @Param({"4", "16", "64"})
+    public int items;
+
+    private HitGrid mGrid;
+    private int[] mLeft;
+    private int[] mTop;
+    private final int[] mQueryX = new int[QUERIES];
+    private final int[] mQueryY = new int[QUERIES];
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        mGrid = new HitGrid();
+        mGrid.reset(WIDTH, HEIGHT, items);
+        mLeft = new int[items];
+        mTop = new int[items];
+        for (int i = 0; i < items; i++) {
+            mLeft[i] = random.nextInt(WIDTH - ITEM_WIDTH);
+            mTop[i] = random.nextInt(HEIGHT - ITEM_HEIGHT);
+            mGrid.set(i, mLeft[i], mTop[i], mLeft[i] + ITEM_WIDTH, mTop[i] + ITEM_HEIGHT);
+        }
+        for (int q = 0; q < QUERIES; q++) {
+            mQueryX[q] = random.nextInt(WIDTH);
+            mQueryY[q] = random.nextInt(HEIGHT);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int grid() {
+        final HitGrid g = mGrid;
+        int sum = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            sum += g.findTopItemAt(mQueryX[q], mQueryY[q], items);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int linear() {
+        int sum = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            final int x = mQueryX[q];
+            final int y = mQueryY[q];
+            int found = -1;
+            for (int i = items - 1; i >= 0; i--) {
+                if (x >= mLeft[i] && x < mLeft[i] + ITEM_WIDTH
+                        && y >= mTop[i] && y < mTop[i] + ITEM_HEIGHT) {
+                    found = i;
+                    break;
+                }
+            }
+            sum += found;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public void move() {
+        final HitGrid g = mGrid;
+        final int item = items - 1;
+        for (int f = 0; f < FRAMES; f++) {
+            // The top child dragged down by 20 pixels a frame
+            final int top = f * 20;
+            g.set(item, mLeft[item], top, mLeft[item] + ITEM_WIDTH, top + ITEM_HEIGHT);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-frame cost of finding the player bounds for a vertical offset, reading them from
+ * the {@link PlayerGeometry} table against computing them with the float math
+ * <code>DragVideoView</code> used before the table. Scores are ns/frame.
+ */
+@State(Scope.Thread)
+public class PlayerGeometryBenchmark {
+    static final int FRAMES = 60;
+
+    private static final int MAX_WIDTH = 1080;
+    private static final float PLAYER_RATIO = 0.5f;
+    private static final float VIDEO_RATIO = 16f / 9f;
+    private static final int AVAILABLE_WIDTH = 1080;
+    private static final int AVAILABLE_HEIGHT = 1776;
+
+    private PlayerGeometry mGeometry;
+    private int mVerticalRange;
+    private final float[] mOffsets = new float[FRAMES];
+
+    @Setup
+    public void setUp() {
+        mGeometry = new PlayerGeometry();
+        mGeometry.setup(MAX_WIDTH, (int) (MAX_WIDTH * PLAYER_RATIO), VIDEO_RATIO,
+                AVAILABLE_WIDTH, AVAILABLE_HEIGHT, 0);
+        mVerticalRange = mGeometry.getVerticalRange();
+        // A minimize drag, slowing down towards the end
+        for (int f = 0; f < FRAMES; f++) {
+            final float t = (float) f / (FRAMES - 1);
+            mOffsets[f] = 1f - (1f - t) * (1f - t);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public int table() {
+        final PlayerGeometry g = mGeometry;
+        int sum = 0;
+        for (int f = 0; f < FRAMES; f++) {
+            final int position = g.positionOf(mOffsets[f]);
+            sum += g.getWidth(position) + g.getHeight(position)
+                    + g.getLeft(position) + g.getTop(position);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public int computed() {
+        int sum = 0;
+        for (int f = 0; f < FRAMES; f++) {
+            final float offset = mOffsets[f];
+            final int width = (int) (MAX_WIDTH * (1f - offset * (1f - PLAYER_RATIO)));
+            final int height = (int) (width / VIDEO_RATIO);
+            final int left = AVAILABLE_WIDTH - width;
+            final int top = (int) (offset * mVerticalRange);
+            sum += width + height + left + top;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-frame cost of <code>CustomViewDragHelper.continueSettling</code>'s physics step for
+ * a long maximize settle, including a retarget half way through. Scores are ns/frame.
+ */
+@State(Scope.Thread)
+public class SettleEngineBenchmark {
+    static final int FRAMES = 60;
+
+    @Param({"16", "8"})
+    public int frameMillis;
+
+    private SettleEngine mEngine;
+
+    @Setup
+    public void setUp() {
+        mEngine = new SettleEngine();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public int settle() {
+        final SettleEngine e = mEngine;
+        e.setState(540, 1600, 0, 0);
+        e.springTo(0, 0, 600, 0);
+        int sum = 0;
+        for (int f = 1; f <= FRAMES; f++) {
+            final long now = (long) f * frameMillis;
+            if (f == FRAMES / 2) {
+                e.springTo(540, 1600, 600, now);
+            }
+            e.computeScrollOffset(now);
+            sum += e.getCurrY();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-event cost of {@link TouchPredictor}: every move adds a sample and predicts
+ * 16ms ahead, as a drag with touch prediction enabled does once per applied move.
+ * Scores are ns/event.
+ */
+@State(Scope.Thread)
+public class TouchPredictorBenchmark {
+    static final int EVENTS = 1000;
+    static final int HORIZON_MILLIS = 16;
+
+    @Param({"single_60hz", "single_1khz"})
+    public String stream;
+
+    private TouchStream mStream;
+    private TouchPredictor mPredictor;
+
+    @Setup
+    public void setUp() {
+        mStream = "single_60hz".equals(stream)
+                ? TouchStream.singlePointer(EVENTS - 2, 60, 900f)
+                : TouchStream.singlePointer(EVENTS - 2, 1000, 900f);
+        mPredictor = new TouchPredictor();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public float replay() {
+        final TouchStream s = mStream;
+        final TouchPredictor p = mPredictor;
+        float sum = 0;
+        for (int e = 0; e < s.size; e++) {
+            final int base = e * TouchStream.MAX_POINTERS;
+            final long timeMillis = s.eventTimeNanos[e] / 1000000L;
+            switch (s.action[e]) {
+                case TouchStream.ACTION_DOWN:
+                    p.clear();
+                    p.addSample(timeMillis, s.x[base], s.y[base]);
+                    break;
+                case TouchStream.ACTION_MOVE:
+                    p.addSample(timeMillis, s.x[base], s.y[base]);
+                    p.predict(timeMillis + HORIZON_MILLIS);
+                    sum += p.getOffsetY();
+                    break;
+                default:
+                    break;
+            }
+        }
+        return sum;
+    }
+}
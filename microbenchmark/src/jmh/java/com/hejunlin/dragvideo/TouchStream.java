@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+/**
+ * Synthetic touch stream stored as flat primitive arrays, so replaying it inside a
+ * benchmark does not allocate. Action values mirror the MotionEvent constants.
+ */
+final class TouchStream {
+    static final int ACTION_DOWN = 0;
+    static final int ACTION_UP = 1;
+    static final int ACTION_MOVE = 2;
+    static final int ACTION_POINTER_DOWN = 5;
+    static final int ACTION_POINTER_UP = 6;
+
+    static final int MAX_POINTERS = 2;
+
+    final int size;
+    final int[] action;
+    final int[] actionIndex;
+    final long[] eventTimeNanos;
+    final int[] pointerCount;
+    final int[] pointerId;
+    final float[] x;
+    final float[] y;
+
+    private TouchStream(int size) {
+        this.size = size;
+        action = new int[size];
+        actionIndex = new int[size];
+        eventTimeNanos = new long[size];
+        pointerCount = new int[size];
+        pointerId = new int[size * MAX_POINTERS];
+        x = new float[size * MAX_POINTERS];
+        y = new float[size * MAX_POINTERS];
+    }
+
+    /**
+     * A single finger dragging the player down by <code>distance</code> pixels.
+     *
+     * @param moves number of ACTION_MOVE events between down and up
+     * @param sampleRateHz touch sampling rate, 1000 for 1 kHz panels
+     * @param distance vertical travel in pixels
+     */
+    static TouchStream singlePointer(int moves, int sampleRateHz, float distance) {
+        final TouchStream s = new TouchStream(moves + 2);
+        final long step = 1000000000L / sampleRateHz;
+        for (int i = 0; i < s.size; i++) {
+            final float t = (float) i / (s.size - 1);
+            s.set(i, i == 0 ? ACTION_DOWN : i == s.size - 1 ? ACTION_UP : ACTION_MOVE, 0,
+                    i * step, 1);
+            s.setPointer(i, 0, 0, 540f, 300f + distance * t);
+        }
+        return s;
+    }
+
+    /**
+     * Two fingers on the player; the second finger goes down after a quarter of the
+     * gesture and lifts after three quarters, exercising pointer hand-off.
+     */
+    static TouchStream twoPointers(int moves, int sampleRateHz, float distance) {
+        final TouchStream s = new TouchStream(moves + 4);
+        final long step = 1000000000L / sampleRateHz;
+        final int secondDown = s.size / 4;
+        final int secondUp = s.size * 3 / 4;
+        for (int i = 0; i < s.size; i++) {
+            final float t = (float) i / (s.size - 1);
+            final float y0 = 300f + distance * t;
+            int action = ACTION_MOVE;
+            int index = 0;
+            if (i == 0) {
+                action = ACTION_DOWN;
+            } else if (i == s.size - 1) {
+                action = ACTION_UP;
+            } else if (i == secondDown) {
+                action = ACTION_POINTER_DOWN;
+                index = 1;
+            } else if (i == secondUp) {
+                action = ACTION_POINTER_UP;
+                index = 1;
+            }
+            final boolean twoDown = i >= secondDown && i <= secondUp;
+            s.set(i, action, index, i * step, twoDown ? 2 : 1);
+            s.setPointer(i, 0, 0, 540f, y0);
+            if (twoDown) {
+                s.setPointer(i, 1, 1, 700f, y0 + 40f);
+            }
+        }
+        return s;
+    }
+
+    private void set(int event, int action, int actionIndex, long timeNanos, int pointerCount) {
+        this.action[event] = action;
+        this.actionIndex[event] = actionIndex;
+        this.eventTimeNanos[event] = timeNanos;
+        this.pointerCount[event] = pointerCount;
+    }
+
+    private void setPointer(int event, int index, int id, float x, float y) {
+        final int slot = event * MAX_POINTERS + index;
+        this.pointerId[slot] = id;
+        this.x[slot] = x;
+        this.y[slot] = y;
+    }
+}
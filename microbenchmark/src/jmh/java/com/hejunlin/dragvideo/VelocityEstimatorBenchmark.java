@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2016 hejunlin <hejunlin2013@gmail.com>
+ *
+ * Github:https://github.com/hejunlin2013/DragVideo
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hejunlin.dragvideo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-event cost of velocity tracking, including the velocity computation done once per
+ * gesture on release. Scores are ns/event.
+ */
+@State(Scope.Thread)
+public class VelocityEstimatorBenchmark {
+    static final int EVENTS = 1000;
+
+    @Param({"lsq", "impulse"})
+    public String strategy;
+
+    @Param({"single_1khz", "two_1khz"})
+    public String stream;
+
+    private TouchStream mStream;
+    private VelocityEstimator mEstimator;
+
+    @Setup
+    public void setUp() {
+        mStream = "two_1khz".equals(stream)
+                ? TouchStream.twoPointers(EVENTS - 4, 1000, 900f)
+                : TouchStream.singlePointer(EVENTS - 2, 1000, 900f);
+        mEstimator = "impulse".equals(strategy)
+                ? new VelocityEstimator.Impulse()
+                : new VelocityEstimator.LeastSquares();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public float replay() {
+        final TouchStream s = mStream;
+        final VelocityEstimator v = mEstimator;
+        for (int e = 0; e < s.size; e++) {
+            final int base = e * TouchStream.MAX_POINTERS;
+            final long timeMillis = s.eventTimeNanos[e] / 1000000L;
+            switch (s.action[e]) {
+                case TouchStream.ACTION_DOWN:
+                    v.clear();
+                    break;
+                case TouchStream.ACTION_POINTER_DOWN:
+                    v.clear(s.pointerId[base + s.actionIndex[e]]);
+                    break;
+                case TouchStream.ACTION_MOVE:
+                    break;
+                default:
+                    continue;
+            }
+            for (int i = 0; i < s.pointerCount[e]; i++) {
+                v.addMovement(s.pointerId[base + i], timeMillis, s.x[base + i], s.y[base + i]);
+            }
+        }
+        v.computeCurrentVelocity(1000, 8000f);
+        return v.getYVelocity(0);
+    }
+}